@@ -0,0 +1,61 @@
+package com.codurance.lightaccess.benchmarks;
+
+import com.codurance.lightaccess.connection.LAConnection;
+import com.codurance.lightaccess.mapping.LAResultSet;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static com.codurance.lightaccess.benchmarks.ProductsDatabase.SELECT_PRODUCT_BY_ID_SQL;
+
+/**
+ * Reads the columns of a single row, kept open for the whole trial, so that
+ * only the cost of the accessors is measured. Run with the GC profiler
+ * ({@code -prof gc}) to see the bytes allocated per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnAccessBenchmark {
+
+    private JdbcConnectionPool pool;
+    private LAConnection connection;
+    private LAResultSet resultSet;
+
+    @Setup
+    public void setUp() throws Exception {
+        pool = ProductsDatabase.create("column_access", 1);
+        connection = new LAConnection(pool.getConnection());
+        resultSet = connection.prepareStatement(SELECT_PRODUCT_BY_ID_SQL)
+                                .withParam(1)
+                                .executeQuery()
+                                .nextRecord();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        resultSet.close();
+        connection.close();
+        pool.dispose();
+    }
+
+    @Benchmark
+    public int getInt() {
+        return resultSet.getInt(1);
+    }
+
+    @Benchmark
+    public String getString() {
+        return resultSet.getString(2);
+    }
+
+    @Benchmark
+    public LocalDate getLocalDate() {
+        return resultSet.getLocalDate(3);
+    }
+}
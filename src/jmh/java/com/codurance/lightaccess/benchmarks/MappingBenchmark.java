@@ -0,0 +1,46 @@
+package com.codurance.lightaccess.benchmarks;
+
+import com.codurance.lightaccess.LightAccess;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.codurance.lightaccess.benchmarks.ProductsDatabase.SELECT_ALL_PRODUCTS_SQL;
+
+/**
+ * Maps all the rows of a query with {@code LAResultSet.mapResults}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"100", "10000"})
+    int rows;
+
+    private JdbcConnectionPool pool;
+    private LightAccess lightAccess;
+
+    @Setup
+    public void setUp() {
+        pool = ProductsDatabase.create("mapping", rows);
+        lightAccess = new LightAccess(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.dispose();
+    }
+
+    @Benchmark
+    public List<Product> mapResults() {
+        return lightAccess.executeQuery(conn -> conn.prepareStatement(SELECT_ALL_PRODUCTS_SQL)
+                                                    .executeQuery()
+                                                    .mapResults(Product::from));
+    }
+}
@@ -0,0 +1,50 @@
+package com.codurance.lightaccess.benchmarks;
+
+import com.codurance.lightaccess.LightAccess;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates ids with {@code LightAccess.nextId}, calling the sequence for
+ * every id (block size 0) or reserving blocks of ids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NextIdBenchmark {
+
+    private static final String ID_SEQUENCE = "id_sequence";
+
+    @Param({"0", "100"})
+    int blockSize;
+
+    private JdbcConnectionPool pool;
+    private LightAccess lightAccess;
+
+    @Setup
+    public void setUp() {
+        pool = ProductsDatabase.create("next_id", 0);
+        lightAccess = new LightAccess(pool);
+        int increment = Math.max(blockSize, 1);
+        lightAccess.executeDDLCommand(conn -> conn.statement("CREATE SEQUENCE " + ID_SEQUENCE + " START WITH " + increment
+                                                                     + " INCREMENT BY " + increment).execute());
+        if (blockSize > 0) {
+            lightAccess.withIdBlocks(ID_SEQUENCE, blockSize);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.dispose();
+    }
+
+    @Benchmark
+    public int nextId() {
+        return lightAccess.nextId(ID_SEQUENCE);
+    }
+}
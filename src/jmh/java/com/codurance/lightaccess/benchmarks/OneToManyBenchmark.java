@@ -0,0 +1,73 @@
+package com.codurance.lightaccess.benchmarks;
+
+import com.codurance.lightaccess.mapping.IntOneToMany;
+import com.codurance.lightaccess.mapping.OneToMany;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalises {@code CHILDREN} joined rows into parents with {@code fanOut}
+ * children each, with boxed keys ({@link OneToMany}) and int keys
+ * ({@link IntOneToMany}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OneToManyBenchmark {
+
+    private static final int CHILDREN = 10_000;
+
+    @Param({"1", "10", "100"})
+    int fanOut;
+
+    private Integer[] parents;
+    private int[] parentIds;
+    private Optional<String>[] children;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        parents = new Integer[CHILDREN];
+        parentIds = new int[CHILDREN];
+        children = new Optional[CHILDREN];
+        for (int row = 0; row < CHILDREN; row++) {
+            parents[row] = row / fanOut;
+            parentIds[row] = row / fanOut;
+            children[row] = Optional.of("child " + row);
+        }
+    }
+
+    @Benchmark
+    public OneToMany<Integer, String> put() {
+        OneToMany<Integer, String> oneToMany = new OneToMany<>();
+        for (int row = 0; row < CHILDREN; row++) {
+            oneToMany.put(parents[row], children[row]);
+        }
+        return oneToMany;
+    }
+
+    @Benchmark
+    public List<Integer> putAndCollect() {
+        return put().collect((parent, children) -> children.size());
+    }
+
+    @Benchmark
+    public IntOneToMany<String> putIntKeys() {
+        IntOneToMany<String> oneToMany = new IntOneToMany<>();
+        for (int row = 0; row < CHILDREN; row++) {
+            oneToMany.put(parentIds[row], children[row]);
+        }
+        return oneToMany;
+    }
+
+    @Benchmark
+    public List<Integer> putIntKeysAndCollect() {
+        return putIntKeys().collect((parent, children) -> children.size());
+    }
+}
@@ -0,0 +1,53 @@
+package com.codurance.lightaccess.benchmarks;
+
+import com.codurance.lightaccess.connection.LAConnection;
+import com.codurance.lightaccess.connection.StatementCacheStats;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static com.codurance.lightaccess.benchmarks.ProductsDatabase.UPDATE_PRODUCT_SQL;
+
+/**
+ * Prepares, binds and executes an update with {@code PreparedStatementBuilder},
+ * with and without the statement cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreparedStatementBenchmark {
+
+    private static final LocalDate DATE = LocalDate.of(2017, 7, 29);
+
+    @Param({"0", "10"})
+    int statementCacheSize;
+
+    private JdbcConnectionPool pool;
+    private LAConnection connection;
+
+    @Setup
+    public void setUp() throws Exception {
+        pool = ProductsDatabase.create("prepared_statement", 1);
+        connection = new LAConnection(pool.getConnection(), statementCacheSize, new StatementCacheStats());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        pool.dispose();
+    }
+
+    @Benchmark
+    public void bindAndExecuteUpdate() {
+        connection.prepareStatement(UPDATE_PRODUCT_SQL)
+                    .withParam("Product 1")
+                    .withParam(DATE)
+                    .withParam(1)
+                    .executeUpdate();
+    }
+}
@@ -0,0 +1,21 @@
+package com.codurance.lightaccess.benchmarks;
+
+import com.codurance.lightaccess.mapping.LAResultSet;
+
+import java.time.LocalDate;
+
+class Product {
+    final int id;
+    final String name;
+    final LocalDate date;
+
+    Product(int id, String name, LocalDate date) {
+        this.id = id;
+        this.name = name;
+        this.date = date;
+    }
+
+    static Product from(LAResultSet resultSet) {
+        return new Product(resultSet.getInt(1), resultSet.getString(2), resultSet.getLocalDate(3));
+    }
+}
@@ -0,0 +1,40 @@
+package com.codurance.lightaccess.benchmarks;
+
+import com.codurance.lightaccess.LightAccess;
+import com.codurance.lightaccess.connection.PreparedStatementBuilder;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.time.LocalDate;
+
+/**
+ * In-memory H2 database with a products table populated with the given
+ * number of rows, with ids from 1 to {@code rows}.
+ */
+class ProductsDatabase {
+
+    static final String SELECT_ALL_PRODUCTS_SQL = "select id, name, date from products";
+    static final String SELECT_PRODUCT_BY_ID_SQL = "select id, name, date from products where id = ?";
+    static final String UPDATE_PRODUCT_SQL = "update products set name = ?, date = ? where id = ?";
+
+    private static final String CREATE_PRODUCTS_TABLE = "CREATE TABLE products (id integer PRIMARY KEY, name VARCHAR(255), date DATE)";
+    private static final String INSERT_PRODUCT_SQL = "insert into products (id, name, date) values (?, ?, ?)";
+    private static final LocalDate FIRST_DATE = LocalDate.of(2017, 7, 29);
+
+    static JdbcConnectionPool create(String name, int rows) {
+        JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "user", "password");
+        LightAccess lightAccess = new LightAccess(pool);
+        lightAccess.executeDDLCommand(conn -> conn.statement("DROP ALL OBJECTS").execute());
+        lightAccess.executeDDLCommand(conn -> conn.statement(CREATE_PRODUCTS_TABLE).execute());
+        lightAccess.executeQuery(conn -> {
+            PreparedStatementBuilder insert = conn.prepareStatement(INSERT_PRODUCT_SQL).withBatchSize(1000);
+            for (int id = 1; id <= rows; id++) {
+                insert.withParam(id)
+                      .withParam("Product " + id)
+                      .withParam(FIRST_DATE.plusDays(id % 365))
+                      .addBatch();
+            }
+            return insert.executeBatch();
+        });
+        return pool;
+    }
+}
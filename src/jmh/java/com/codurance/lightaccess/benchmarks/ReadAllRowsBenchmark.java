@@ -0,0 +1,70 @@
+package com.codurance.lightaccess.benchmarks;
+
+import com.codurance.lightaccess.connection.LAConnection;
+import com.codurance.lightaccess.mapping.LAResultSet;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.codurance.lightaccess.benchmarks.ProductsDatabase.SELECT_ALL_PRODUCTS_SQL;
+
+/**
+ * Reads the id of every row of a large result. The difference between the
+ * bytes allocated per operation ({@code gc.alloc.rate.norm} with
+ * {@code -prof gc}) of {@link #readIds()} and {@link #moveToEachRow()} is
+ * the allocation of {@code getInt} over all the rows, which should be zero.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReadAllRowsBenchmark {
+
+    @Param({"1000000"})
+    int rows;
+
+    private JdbcConnectionPool pool;
+    private LAConnection connection;
+
+    @Setup
+    public void setUp() throws Exception {
+        pool = ProductsDatabase.create("read_all_rows", rows);
+        connection = new LAConnection(pool.getConnection());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        pool.dispose();
+    }
+
+    @Benchmark
+    public long moveToEachRow() throws Exception {
+        try (LAResultSet resultSet = selectAllProducts()) {
+            for (int row = 0; row < rows; row++) {
+                resultSet.nextRecord();
+            }
+            return rows;
+        }
+    }
+
+    @Benchmark
+    public long readIds() throws Exception {
+        try (LAResultSet resultSet = selectAllProducts()) {
+            long sum = 0;
+            for (int row = 0; row < rows; row++) {
+                sum += resultSet.nextRecord().getInt(1);
+            }
+            return sum;
+        }
+    }
+
+    private LAResultSet selectAllProducts() {
+        return connection.prepareStatement(SELECT_ALL_PRODUCTS_SQL)
+                            .withFetchSize(1000)
+                            .executeQuery();
+    }
+}
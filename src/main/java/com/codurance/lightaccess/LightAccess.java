@@ -1,11 +1,43 @@
 package com.codurance.lightaccess;
 
+import com.codurance.lightaccess.async.BoundedExecutor;
+import com.codurance.lightaccess.bulk.BatchBulkLoader;
+import com.codurance.lightaccess.bulk.BulkLoader;
+import com.codurance.lightaccess.bulk.H2CsvBulkLoader;
+import com.codurance.lightaccess.cache.QueryCache;
+import com.codurance.lightaccess.cache.QueryKey;
 import com.codurance.lightaccess.connection.LAConnection;
+import com.codurance.lightaccess.connection.LeakDetector;
+import com.codurance.lightaccess.connection.StatementCacheStats;
+import com.codurance.lightaccess.connection.TransactionIsolation;
 import com.codurance.lightaccess.executables.*;
+import com.codurance.lightaccess.mapping.ColumnLabelCache;
+import com.codurance.lightaccess.mapping.LAResultSet;
+import com.codurance.lightaccess.metrics.LightAccessListener;
+import com.codurance.lightaccess.pagination.KeysetPaginator;
+import com.codurance.lightaccess.partitions.KeyRange;
+import com.codurance.lightaccess.partitions.PartitionedResults;
+import com.codurance.lightaccess.pool.LAConnectionPool;
+import com.codurance.lightaccess.routing.ReadWriteRouter;
+import com.codurance.lightaccess.routing.ReadWriteRouter.Route;
+import com.codurance.lightaccess.routing.ReplicaSelection;
+import com.codurance.lightaccess.sequences.PooledIdAllocator;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.codurance.lightaccess.executables.Throwables.executeWithResource;
 import static java.lang.String.format;
@@ -13,16 +45,340 @@ import static java.lang.String.format;
 public class LightAccess {
 
     private static final String SEQUENCE_CALL_SQL = "select nextval('%s')";
+    private static final String SEQUENCE_INCREMENT_SQL =
+            "select increment from information_schema.sequences where lower(sequence_name) = lower(?)";
+    private static final int DEFAULT_MAX_IN_FLIGHT = 10;
+    private static final int MAX_CACHED_COLUMN_LABELS = 1_000;
     
     private DataSource ds;
+    private final ReadWriteRouter router;
+    private int statementCacheSize = 0;
+    private final StatementCacheStats statementCacheStats = new StatementCacheStats();
+    private final Map<String, PooledIdAllocator> idAllocators = new ConcurrentHashMap<>();
+    private volatile Executor asyncExecutor;
+    private LightAccessListener listener = LightAccessListener.NONE;
+    private QueryCache queryCache;
+    private final ColumnLabelCache columnLabelCache = new ColumnLabelCache(MAX_CACHED_COLUMN_LABELS);
+    private LeakDetector leakDetector;
+    private BulkLoader bulkLoader = new H2CsvBulkLoader(new BatchBulkLoader());
                                                      
     public LightAccess(DataSource connection) {
-        this.ds = connection;
+        this(connection, Collections.emptyList());
+    }
+
+    /**
+     * Executes queries with the replicas, and commands, transactions and
+     * bulk loads with the primary. Connections to the replicas are hinted to
+     * be read-only.
+     *
+     * @param primary data source of the primary database.
+     * @param replicas data sources of the replicas of the primary database.
+     * @see #withReplicaSelection(ReplicaSelection)
+     * @see #withReadYourWrites(Duration)
+     */
+    public LightAccess(DataSource primary, List<DataSource> replicas) {
+        this.ds = primary;
+        this.router = new ReadWriteRouter(primary, replicas);
+    }
+
+    /**
+     * Caches up to {@code size} prepared statements per connection, so that
+     * statements executed repeatedly with the same connection are only
+     * prepared once. As each query and command gets its own connection,
+     * this pays off for statements executed many times within one of them.
+     * To reuse statements across queries and commands, cache them in
+     * {@link com.codurance.lightaccess.pool.LAConnectionPool} instead.
+     *
+     * @param size maximum number of prepared statements cached per connection.
+     * @return
+     */
+    public LightAccess withStatementCache(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Statement cache size must not be negative: " + size);
+        }
+        this.statementCacheSize = size;
+        return this;
+    }
+
+    public StatementCacheStats statementCacheStats() {
+        return statementCacheStats;
+    }
+
+    /**
+     * Notifies the listener of the time spent acquiring connections,
+     * preparing and executing statements and mapping their results, e.g. a
+     * {@link com.codurance.lightaccess.metrics.StatementMetrics}.
+     *
+     * @param listener listener of the queries and commands executed.
+     * @return
+     */
+    public LightAccess withListener(LightAccessListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Makes {@link #nextId(String)} reserve blocks of ids from the given
+     * sequence, instead of calling the sequence for every id. The sequence
+     * must be incremented by {@code blockSize}, each of its values being the
+     * last id of a block, so ids never collide with the values of the
+     * sequence used directly. The next block is reserved in the background,
+     * with the asynchronous executor, when half of the current one has been
+     * used.
+     *
+     * @param sequenceName sequence used to reserve blocks of ids.
+     * @param blockSize number of ids per block.
+     * @return
+     * @throws IllegalArgumentException if the sequence is not incremented by {@code blockSize}.
+     */
+    public LightAccess withIdBlocks(String sequenceName, int blockSize) {
+        return withIdBlocks(sequenceName, blockSize, blockSize / 2, task -> asyncExecutor().execute(task));
+    }
+
+    /**
+     * @param sequenceName sequence used to reserve blocks of ids.
+     * @param blockSize number of ids per block.
+     * @param refillThreshold number of ids left in the current block when the next one is reserved.
+     * @param executor executor reserving the next block in the background.
+     * @return
+     * @throws IllegalArgumentException if the sequence is not incremented by {@code blockSize}.
+     * @see #withIdBlocks(String, int)
+     */
+    public LightAccess withIdBlocks(String sequenceName, int blockSize, int refillThreshold, Executor executor) {
+        long increment = sequenceIncrement(sequenceName);
+        if (increment != blockSize) {
+            throw new IllegalArgumentException("Sequence " + sequenceName + " must be incremented by the block size "
+                                                       + blockSize + ", not " + increment);
+        }
+        PooledIdAllocator allocator = new PooledIdAllocator(() -> nextSequenceValue(sequenceName), blockSize, refillThreshold, executor);
+        idAllocators.put(sequenceName, allocator);
+        return this;
+    }
+
+    /**
+     * Executor running the asynchronous queries and commands. At most
+     * {@code maxInFlight} of them are executed at a time, the others being
+     * queued. By default, they run on virtual threads when available and at
+     * most as many run at a time as the {@link LAConnectionPool} has
+     * connections (10 for other data sources).
+     *
+     * @param executor executor running the queries and commands.
+     * @param maxInFlight maximum number of queries and commands executed at a time.
+     * @return
+     */
+    public LightAccess withAsyncExecutor(Executor executor, int maxInFlight) {
+        this.asyncExecutor = new BoundedExecutor(executor, maxInFlight);
+        return this;
+    }
+
+    /**
+     * Caches the results of the queries executed with
+     * {@link #executeQuery(QueryKey, SQLQuery)}. Cached results depending on
+     * a table are invalidated once a query, command or transaction that
+     * changed it completes.
+     *
+     * @param queryCache cache of query results.
+     * @return
+     */
+    public LightAccess withQueryCache(QueryCache queryCache) {
+        this.queryCache = queryCache;
+        return this;
+    }
+
+    /**
+     * Reports the statements and result sets held open for too long, with
+     * the stack trace of the code that created them. Whether or not leaks
+     * are detected, the statements and result sets left open are closed
+     * with their connection.
+     *
+     * @param leakDetector detector of the statements held open for too long.
+     * @return
+     */
+    public LightAccess withLeakDetector(LeakDetector leakDetector) {
+        this.leakDetector = leakDetector;
+        return this;
+    }
+
+    /**
+     * Loader used by {@link #bulkLoad(String, List, Iterator, Function)}. By
+     * default, rows are loaded from a CSV file with H2 databases in the same
+     * JVM, and with JDBC batches otherwise.
+     *
+     * @param bulkLoader loader of rows into tables.
+     * @return
+     */
+    public LightAccess withBulkLoader(BulkLoader bulkLoader) {
+        this.bulkLoader = bulkLoader;
+        return this;
+    }
+
+    /**
+     * Chooses the replica executing each query, {@link ReplicaSelection#ROUND_ROBIN} by default.
+     *
+     * @param selection how replicas are chosen.
+     * @return
+     */
+    public LightAccess withReplicaSelection(ReplicaSelection selection) {
+        router.withSelection(selection);
+        return this;
+    }
+
+    /**
+     * Executes the queries with the primary for some time after a command,
+     * transaction or bulk load of the same thread completes, including an
+     * asynchronous one, so that they see its changes despite the replicas
+     * lagging behind.
+     *
+     * @param pin time queries are executed with the primary after a write, e.g. the maximum replication lag.
+     * @return
+     */
+    public LightAccess withReadYourWrites(Duration pin) {
+        router.withReadYourWrites(pin);
+        return this;
+    }
+
+    /**
+     * Executes the work in a scope where queries are executed with the
+     * primary once a command, transaction or bulk load has been executed in
+     * it, so that they see its changes.
+     *
+     * @param work queries and commands of the scope.
+     * @return result of the work.
+     */
+    public <T> T readingYourWrites(Supplier<T> work) {
+        return router.readingYourWrites(work);
+    }
+
+    public <T> CompletableFuture<T> executeQueryAsync(SQLQuery<T> sqlQuery) {
+        Route route = router.read();
+        return CompletableFuture.supplyAsync(() -> query(route, sqlQuery), asyncExecutor());
+    }
+
+    public CompletableFuture<Void> executeCommandAsync(SQLCommand sqlCommand) {
+        Route route = router.write();
+        return CompletableFuture.runAsync(() -> execute(route, sqlCommand), asyncExecutor());
     }
 
     public <T> T executeQuery(SQLQuery<T> sqlQuery) {
-        LAConnection conn = pgConnection();
-        return executeWithResource(conn, () -> sqlQuery.execute(conn));
+        return query(router.read(), sqlQuery);
+    }
+
+    /**
+     * Executes the query with the primary, e.g. queries changing data or
+     * that must see the latest changes. Without replicas, it is the same as
+     * {@link #executeQuery(SQLQuery)}.
+     *
+     * @param sqlQuery query executed with the primary.
+     * @return
+     */
+    public <T> T executeQueryOnPrimary(SQLQuery<T> sqlQuery) {
+        return query(router.write(), sqlQuery);
+    }
+
+    /**
+     * Returns the cached result of the query when there is one, executing
+     * the query otherwise. Without a query cache, the query is always executed.
+     *
+     * @param key SQL and parameters of the query, and the tables it depends on.
+     * @param sqlQuery query executed when its result is not cached.
+     * @return
+     * @see #withQueryCache(QueryCache)
+     */
+    public <T> T executeQuery(QueryKey key, SQLQuery<T> sqlQuery) {
+        if (queryCache == null) {
+            return executeQuery(sqlQuery);
+        }
+        return queryCache.get(key, () -> executeQuery(sqlQuery));
+    }
+
+    /**
+     * Executes a query returning a lazily consumed stream, e.g. one created by
+     * {@link com.codurance.lightaccess.mapping.LAResultSet#stream(Function)}.
+     * The connection stays open until the stream is closed.
+     *
+     * @param sqlQuery query returning a stream.
+     * @return
+     */
+    public <T> Stream<T> executeStreamQuery(SQLQuery<Stream<T>> sqlQuery) {
+        LAConnection conn = pgConnection(router.read());
+        try {
+            return Throwables.executeQuery(() -> sqlQuery.execute(conn))
+                                .onClose(() -> {
+                                    Throwables.execute(conn::close);
+                                    invalidateCachesChangedBy(conn);
+                                });
+        } catch (RuntimeException e) {
+            Throwables.execute(conn::close);
+            invalidateCachesChangedBy(conn);
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the rows into the table with the bulk loader, using a single
+     * connection. Rows are loaded outside of a transaction, so a failed load
+     * may leave some of them loaded.
+     *
+     * @param table table the rows are loaded into.
+     * @param columns columns of the table the values of each row are loaded into.
+     * @param rows rows loaded, read once, in order.
+     * @param values values of a row, in the order of the columns.
+     * @return number of rows loaded.
+     * @see #withBulkLoader(BulkLoader)
+     */
+    public <T> long bulkLoad(String table, List<String> columns, Iterator<T> rows, Function<T, Object[]> values) {
+        return query(router.write(), conn -> bulkLoader.load(conn, table, columns, rows, values));
+    }
+
+    /**
+     * @param table table the rows are loaded into.
+     * @param columns columns of the table the values of each row are loaded into.
+     * @param rows rows loaded, closed once loaded.
+     * @param values values of a row, in the order of the columns.
+     * @return number of rows loaded.
+     * @see #bulkLoad(String, List, Iterator, Function)
+     */
+    public <T> long bulkLoad(String table, List<String> columns, Stream<T> rows, Function<T, Object[]> values) {
+        try (Stream<T> loadedRows = rows) {
+            return bulkLoad(table, columns, loadedRows.iterator(), values);
+        }
+    }
+
+    /**
+     * Reads the results of the query one page at a time, each page starting
+     * after the key of the last record of the previous one.
+     *
+     * @param sql query whose results are paginated, without ordering.
+     * @param keyColumn label of the unique column the results are ordered by.
+     * @param key key of a record, i.e. the value of its key column.
+     * @param mapRow maps the current record.
+     * @param pageSize maximum number of records per page.
+     * @return
+     */
+    public <T> KeysetPaginator<T> paginate(String sql, String keyColumn, Function<T, ?> key,
+                                           Function<LAResultSet, T> mapRow, int pageSize) {
+        return new KeysetPaginator<>(this, sql, keyColumn, key, mapRow, pageSize);
+    }
+
+    /**
+     * Splits the key range into partitions and executes the query for each
+     * of them concurrently, with the asynchronous executor and a connection
+     * per partition, e.g. {@code where id >= ? and id < ?} with the bounds of
+     * the partition.
+     *
+     * @param range range of keys queried.
+     * @param partitions number of partitions queried concurrently.
+     * @param query query of the keys of a partition.
+     * @return results of the partitions, merged once read.
+     * @see #withAsyncExecutor(Executor, int)
+     */
+    public <T> PartitionedResults<T> executeQueryInPartitions(KeyRange range, int partitions,
+                                                              Function<KeyRange, SQLQuery<List<T>>> query) {
+        List<CompletableFuture<List<T>>> results = new ArrayList<>();
+        for (KeyRange partition : range.split(partitions)) {
+            results.add(executeQueryAsync(query.apply(partition)));
+        }
+        return new PartitionedResults<>(results);
     }
 
     public void executeCommand(SQLCommand sqlCommand) {
@@ -33,29 +389,178 @@ public class LightAccess {
         execute(ddlCommand);
     }
 
+    /**
+     * Executes a block of queries and commands with a single connection and
+     * a single transaction, committed when the block completes and rolled
+     * back if it throws an exception.
+     *
+     * @param work queries and commands executed with the given connection.
+     * @return result of the block.
+     */
+    public <T> T inTransaction(SQLQuery<T> work) {
+        return inTransaction(TransactionIsolation.DEFAULT, work);
+    }
+
+    /**
+     * @param isolation isolation level of the transaction.
+     * @param work queries and commands executed with the given connection.
+     * @return result of the block.
+     * @see #inTransaction(SQLQuery)
+     */
+    public <T> T inTransaction(TransactionIsolation isolation, SQLQuery<T> work) {
+        LAConnection conn = pgConnection(router.write());
+        try {
+            return executeWithResource(conn, () -> {
+                conn.beginTransaction(isolation);
+                try {
+                    T result = work.execute(conn);
+                    conn.commit();
+                    return result;
+                } catch (Exception e) {
+                    rollback(conn, e);
+                    throw e;
+                }
+            });
+        } finally {
+            invalidateCachesChangedBy(conn);
+        }
+    }
+
+    /**
+     * Executes the commands in order, with a single connection and a single
+     * transaction.
+     *
+     * @param commands commands executed in the transaction.
+     */
+    public void executeInTransaction(SQLCommand... commands) {
+        executeInTransaction(TransactionIsolation.DEFAULT, commands);
+    }
+
+    public void executeInTransaction(TransactionIsolation isolation, SQLCommand... commands) {
+        inTransaction(isolation, conn -> {
+            for (SQLCommand command : commands) {
+                command.execute(conn);
+            }
+            return null;
+        });
+    }
+
     public int nextId(String sequenceName) {
         return nextId(sequenceName, x -> x);
     }
 
     public <T> T nextId(String sequenceName, Function<Integer, T> nextId) {
-        LAConnection conn = pgConnection();
-        return executeWithResource(conn, () -> nextId.apply(sequenceNextId(sequenceName, conn)));
+        PooledIdAllocator allocator = idAllocators.get(sequenceName);
+        int id = (allocator != null) ? allocator.nextId() : nextSequenceValue(sequenceName);
+        return nextId.apply(id);
+    }
+
+    private int nextSequenceValue(String sequenceName) {
+        LAConnection conn = pgConnection(router.primary());
+        return executeWithResource(conn, () -> sequenceNextId(sequenceName, conn));
+    }
+
+    private long sequenceIncrement(String sequenceName) {
+        List<String> increments = executeQuery(conn -> conn.prepareStatement(SEQUENCE_INCREMENT_SQL)
+                                                            .withParam(sequenceName)
+                                                            .executeQuery()
+                                                            .mapResults(result -> result.getString(1)));
+        if (increments.isEmpty()) {
+            throw new IllegalArgumentException("Sequence not found: " + sequenceName);
+        }
+        return Long.parseLong(increments.get(0).trim());
     }
 
-    private int sequenceNextId(String sequenceName, LAConnection conn) throws SQLException {
+    private int sequenceNextId(String sequenceName, LAConnection conn) throws Exception {
         String sql = format(SEQUENCE_CALL_SQL, sequenceName);
-        return conn.callableStatement(sql)
-                    .executeQuery()
-                    .nextRecord()
-                    .getInt(1);
+        try (LAResultSet result = conn.callableStatement(sql).executeQuery()) {
+            return result.nextRecord().getInt(1);
+        }
     }
 
     private void execute(Command command) {
-        LAConnection conn = pgConnection();
-        executeWithResource(conn, () -> command.execute(conn));
+        execute(router.write(), command);
+    }
+
+    private void execute(Route route, Command command) {
+        LAConnection conn = pgConnection(route);
+        try {
+            executeWithResource(conn, () -> command.execute(conn));
+        } finally {
+            invalidateCachesChangedBy(conn);
+        }
+    }
+
+    private <T> T query(Route route, SQLQuery<T> sqlQuery) {
+        LAConnection conn = pgConnection(route);
+        try {
+            return executeWithResource(conn, () -> sqlQuery.execute(conn));
+        } finally {
+            invalidateCachesChangedBy(conn);
+        }
+    }
+
+    private void invalidateCachesChangedBy(LAConnection conn) {
+        if (conn.executedUpdates().isEmpty()) {
+            return;
+        }
+        columnLabelCache.invalidateIfSchemaChangedBy(conn.executedUpdates());
+        if (queryCache != null) {
+            queryCache.invalidateTablesChangedBy(conn.executedUpdates());
+        }
+    }
+
+    private Executor asyncExecutor() {
+        if (asyncExecutor == null) {
+            synchronized (this) {
+                if (asyncExecutor == null) {
+                    int maxInFlight = (ds instanceof LAConnectionPool) ? ((LAConnectionPool) ds).maxSize() : DEFAULT_MAX_IN_FLIGHT;
+                    asyncExecutor = BoundedExecutor.onDefaultThreads(maxInFlight);
+                }
+            }
+        }
+        return asyncExecutor;
+    }
+
+    private void rollback(LAConnection conn, Exception cause) {
+        try {
+            conn.rollback();
+        } catch (Exception e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private void close(LAConnection conn, Exception cause) {
+        try {
+            conn.close();
+        } catch (Exception e) {
+            cause.addSuppressed(e);
+        }
     }
 
-    private LAConnection pgConnection() {
-        return Throwables.executeQuery(() -> new LAConnection(ds.getConnection()));
+    private LAConnection pgConnection(Route route) {
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = route.dataSource().getConnection();
+        } catch (SQLException e) {
+            route.completed();
+            listener.failed(null, e);
+            throw new RuntimeException(e);
+        }
+        listener.connectionAcquired(System.nanoTime() - start);
+        LAConnection conn = new LAConnection(connection, statementCacheSize, statementCacheStats, listener, leakDetector)
+                .withColumnLabelCache(columnLabelCache)
+                .onClose(route::completed);
+        if (route.readOnly()) {
+            try {
+                conn.setReadOnly(true);
+            } catch (SQLException e) {
+                listener.failed(null, e);
+                close(conn, e);
+                throw new RuntimeException(e);
+            }
+        }
+        return conn;
     }
 }
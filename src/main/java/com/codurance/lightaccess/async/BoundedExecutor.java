@@ -0,0 +1,117 @@
+package com.codurance.lightaccess.async;
+
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs at most {@code maxInFlight} tasks at a time on the given executor.
+ * Further tasks are queued, without blocking the caller, and run as
+ * running ones complete, on the threads of the completed ones. The executor
+ * is therefore only given new work by {@link #execute(Runnable)}, so a task
+ * it rejects is reported to its caller rather than lost.
+ */
+public class BoundedExecutor implements Executor {
+
+    private final Executor executor;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    public BoundedExecutor(Executor executor, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight tasks must be positive: " + maxInFlight);
+        }
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Runs the tasks on virtual threads when the JVM supports them (Java 21+),
+     * or on daemon platform threads otherwise.
+     *
+     * @param maxInFlight maximum number of tasks running at a time.
+     * @return
+     */
+    public static BoundedExecutor onDefaultThreads(int maxInFlight) {
+        return new BoundedExecutor(defaultThreads(), maxInFlight);
+    }
+
+    /**
+     * @throws RejectedExecutionException if the task cannot be started by
+     * the executor, in which case it is not queued either.
+     */
+    @Override
+    public void execute(Runnable task) {
+        pending.add(task);
+        if (!tryAcquireSlot()) {
+            return;
+        }
+        try {
+            executor.execute(this::runPendingTasks);
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            if (pending.remove(task)) {
+                throw e;
+            }
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+
+    private void runPendingTasks() {
+        do {
+            try {
+                runUntilNoneIsPending();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        } while (!pending.isEmpty() && tryAcquireSlot());
+    }
+
+    private void runUntilNoneIsPending() {
+        Runnable task;
+        while ((task = pending.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, e);
+            }
+        }
+    }
+
+    private boolean tryAcquireSlot() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private static Executor defaultThreads() {
+        try {
+            Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) virtualThreads.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "light-access-async");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
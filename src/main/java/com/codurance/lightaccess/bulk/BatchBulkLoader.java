@@ -0,0 +1,60 @@
+package com.codurance.lightaccess.bulk;
+
+import com.codurance.lightaccess.connection.LAConnection;
+import com.codurance.lightaccess.connection.PreparedStatementBuilder;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.codurance.lightaccess.bulk.SqlIdentifiers.tableWithColumns;
+import static java.lang.String.format;
+
+/**
+ * Loads rows with JDBC batches of inserts, supported by all databases.
+ */
+public class BatchBulkLoader implements BulkLoader {
+
+    private static final String INSERT_SQL = "insert into %s values (%s)";
+    private static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    private final int batchSize;
+
+    public BatchBulkLoader() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize number of rows per batch.
+     */
+    public BatchBulkLoader(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public <T> long load(LAConnection connection, String table, List<String> columns,
+                         Iterator<T> rows, Function<T, Object[]> values) {
+        String sql = format(INSERT_SQL, tableWithColumns(table, columns), String.join(", ", Collections.nCopies(columns.size(), "?")));
+        long loaded = 0;
+        while (rows.hasNext()) {
+            PreparedStatementBuilder insert = connection.prepareStatement(sql);
+            for (int batchRows = 0; batchRows < batchSize && rows.hasNext(); batchRows++) {
+                Object[] row = values.apply(rows.next());
+                if (row.length != columns.size()) {
+                    throw new IllegalArgumentException(format("Expected %d values per row but got %d", columns.size(), row.length));
+                }
+                for (Object value : row) {
+                    insert.withObjectParam(value);
+                }
+                insert.addBatch();
+                loaded++;
+            }
+            insert.executeBatch();
+        }
+        return loaded;
+    }
+}
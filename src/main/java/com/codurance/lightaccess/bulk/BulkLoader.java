@@ -0,0 +1,33 @@
+package com.codurance.lightaccess.bulk;
+
+import com.codurance.lightaccess.connection.LAConnection;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Loads rows into a table with the fastest mechanism a database offers,
+ * e.g. reading a file on the database side rather than inserting the rows
+ * one by one. Loaders for a specific database take a fallback loader, used
+ * with other databases.
+ *
+ * @see H2CsvBulkLoader
+ * @see BatchBulkLoader
+ */
+public interface BulkLoader {
+
+    /**
+     * @param connection connection the rows are loaded with.
+     * @param table table the rows are loaded into.
+     * @param columns columns of the table the values of each row are loaded into.
+     * @param rows rows loaded, read once, in order.
+     * @param values values of a row, in the order of the columns.
+     * @return number of rows loaded.
+     * @throws IllegalArgumentException if the table or a column is not an SQL identifier.
+     * @throws SQLException
+     */
+    <T> long load(LAConnection connection, String table, List<String> columns,
+                  Iterator<T> rows, Function<T, Object[]> values) throws SQLException;
+}
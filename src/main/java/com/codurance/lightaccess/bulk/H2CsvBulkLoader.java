@@ -0,0 +1,162 @@
+package com.codurance.lightaccess.bulk;
+
+import com.codurance.lightaccess.connection.LAConnection;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.codurance.lightaccess.bulk.SqlIdentifiers.tableWithColumns;
+import static com.codurance.lightaccess.executables.Throwables.execute;
+import static com.codurance.lightaccess.executables.Throwables.executeQuery;
+import static com.codurance.lightaccess.executables.Throwables.executeWithResource;
+import static java.lang.String.format;
+
+/**
+ * Loads rows into an H2 database by writing them to a temporary CSV file,
+ * inserted with a single {@code INSERT ... SELECT * FROM CSVREAD(...)}.
+ * The database must be able to read the file, so it is only used with
+ * in-memory and file databases opened in the same JVM, the fallback loader
+ * being used with other databases and with H2 servers. As H2 only lets
+ * admins read files, the fallback loader is also used when the database
+ * fails to read the CSV file before any row is written to it.
+ */
+public class H2CsvBulkLoader implements BulkLoader {
+
+    private static final String INSERT_FROM_CSV_SQL = "insert into %s select * from csvread('%s', null, 'charset=UTF-8')";
+    private static final String COUNT_CSV_SQL = "select count(*) from csvread('%s', null, 'charset=UTF-8')";
+    private static final String H2 = "H2";
+
+    private final BulkLoader fallback;
+
+    /**
+     * @param fallback loader used with other databases.
+     */
+    public H2CsvBulkLoader(BulkLoader fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public <T> long load(LAConnection connection, String table, List<String> columns,
+                         Iterator<T> rows, Function<T, Object[]> values) throws SQLException {
+        String tableWithColumns = tableWithColumns(table, columns);
+        if (!isEmbeddedH2(connection.metaData())) {
+            return fallback.load(connection, table, columns, rows, values);
+        }
+        Path csv = executeQuery(() -> Files.createTempFile("light-access-", ".csv"));
+        try {
+            String path = csv.toAbsolutePath().toString().replace("'", "''");
+            execute(() -> writeHeader(csv, columns));
+            if (!canReadCsv(connection, path)) {
+                return fallback.load(connection, table, columns, rows, values);
+            }
+            long loaded = executeQuery(() -> writeRows(csv, columns, rows, values));
+            connection.prepareStatement(format(INSERT_FROM_CSV_SQL, tableWithColumns, path))
+                      .executeUpdate();
+            return loaded;
+        } finally {
+            executeQuery(() -> Files.deleteIfExists(csv));
+        }
+    }
+
+    private boolean isEmbeddedH2(DatabaseMetaData metaData) throws SQLException {
+        String url = metaData.getURL();
+        return H2.equals(metaData.getDatabaseProductName())
+                && url != null && !url.startsWith("jdbc:h2:tcp:") && !url.startsWith("jdbc:h2:ssl:");
+    }
+
+    private boolean canReadCsv(LAConnection connection, String path) {
+        try {
+            executeWithResource(connection.prepareStatement(format(COUNT_CSV_SQL, path)).executeQuery(), () -> {});
+            return true;
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof SQLException) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private void writeHeader(Path csv, List<String> columns) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writeRow(writer, columns.toArray());
+        }
+    }
+
+    private <T> long writeRows(Path csv, List<String> columns, Iterator<T> rows, Function<T, Object[]> values) throws IOException {
+        long written = 0;
+        try (Writer writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+            while (rows.hasNext()) {
+                Object[] row = values.apply(rows.next());
+                if (row.length != columns.size()) {
+                    throw new IllegalArgumentException(format("Expected %d values per row but got %d", columns.size(), row.length));
+                }
+                writeRow(writer, row);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private void writeRow(Writer writer, Object[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (row[i] != null) {
+                writeQuoted(writer, csvValue(row[i]));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private String csvValue(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Instant) {
+            return Timestamp.from((Instant) value).toString();
+        }
+        if (value instanceof LocalDateTime || value instanceof OffsetDateTime) {
+            return value.toString().replace('T', ' ');
+        }
+        if (value instanceof byte[]) {
+            return hex((byte[]) value);
+        }
+        return value.toString();
+    }
+
+    private void writeQuoted(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private String hex(byte[] bytes) {
+        char[] digits = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            digits[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            digits[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(digits);
+    }
+}
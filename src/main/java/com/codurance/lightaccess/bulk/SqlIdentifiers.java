@@ -0,0 +1,37 @@
+package com.codurance.lightaccess.bulk;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Table and column names concatenated into the SQL of the loaders, which
+ * must be plain or double quoted identifiers, optionally qualified, so that
+ * they cannot change the statement.
+ */
+final class SqlIdentifiers {
+
+    private static final String IDENTIFIER = "(?:[A-Za-z_][A-Za-z0-9_$]*|\"[^\"]+\")";
+    private static final Pattern QUALIFIED_IDENTIFIER = Pattern.compile(IDENTIFIER + "(?:\\." + IDENTIFIER + ")*");
+
+    private SqlIdentifiers() {
+    }
+
+    /**
+     * @return the table followed by its columns, e.g. {@code products (id, name)}.
+     * @throws IllegalArgumentException if the table or a column is not an identifier, or there are no columns.
+     */
+    static String tableWithColumns(String table, List<String> columns) {
+        requireIdentifier(table);
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("No columns to load into " + table);
+        }
+        columns.forEach(SqlIdentifiers::requireIdentifier);
+        return table + " (" + String.join(", ", columns) + ")";
+    }
+
+    private static void requireIdentifier(String name) {
+        if (name == null || !QUALIFIED_IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not an SQL identifier: " + name);
+        }
+    }
+}
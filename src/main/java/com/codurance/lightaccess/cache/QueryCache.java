@@ -0,0 +1,207 @@
+package com.codurance.lightaccess.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+
+/**
+ * Results of queries, kept for up to {@code timeToLive} after they are
+ * loaded, the least recently used being evicted when more than
+ * {@code maxSize} are cached. Concurrent misses of the same query share a
+ * single execution of it.
+ *
+ * Results are invalidated when a table they depend on is changed by an
+ * insert, update, delete, merge or DDL statement. Any other statement that
+ * is not a select invalidates all the results. Cached results are shared by
+ * all callers, so they should not be modified.
+ */
+public class QueryCache {
+
+    private static final Pattern WRITTEN_TABLE = Pattern.compile(
+            "\\s*(?:insert\\s+into|update|delete\\s+from|merge\\s+into|truncate\\s+table|create\\s+table|alter\\s+table" +
+                    "|drop\\s+table(?:\\s+if\\s+exists)?)\\s+([\\w.\"`\\[\\]]+)", CASE_INSENSITIVE);
+    private static final Pattern READ = Pattern.compile("\\s*(?:select|values)\\b", CASE_INSENSITIVE);
+
+    private final int maxSize;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final QueryCacheStats stats = new QueryCacheStats();
+    private final Map<QueryKey, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+    private final LinkedHashMap<QueryKey, CachedResult> entries;
+    private long invalidationVersion = 0;
+
+    public QueryCache(int maxSize, Duration timeToLive) {
+        this(maxSize, timeToLive, System::nanoTime);
+    }
+
+    QueryCache(int maxSize, Duration timeToLive, LongSupplier nanoClock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Query cache size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param key query and parameters.
+     * @param query executes the query when its result is not cached.
+     * @return cached result, or result of the query.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(QueryKey key, Supplier<T> query) {
+        CachedResult cached = cachedResult(key);
+        if (cached != null) {
+            stats.hit();
+            return (T) cached.value;
+        }
+        stats.miss();
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> loadInProgress = loads.putIfAbsent(key, load);
+        if (loadInProgress != null) {
+            return (T) await(loadInProgress);
+        }
+        try {
+            cached = cachedResult(key);
+            T value = (cached != null) ? (T) cached.value : load(key, query);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    /**
+     * Invalidates the results depending on the tables changed by the given
+     * statements, or all the results if a statement is not recognised.
+     *
+     * @param sqlStatements SQL of the statements executed.
+     */
+    public void invalidateTablesChangedBy(Collection<String> sqlStatements) {
+        Set<String> tables = new HashSet<>();
+        for (String sql : sqlStatements) {
+            Matcher writtenTable = WRITTEN_TABLE.matcher(sql);
+            if (writtenTable.lookingAt()) {
+                tables.add(QueryKey.tableName(writtenTable.group(1)));
+            } else if (!READ.matcher(sql).lookingAt()) {
+                invalidateAll();
+                return;
+            }
+        }
+        invalidate(tables);
+    }
+
+    public void invalidate(Set<String> tables) {
+        if (tables.isEmpty()) {
+            return;
+        }
+        Set<String> tableNames = new HashSet<>();
+        tables.forEach(table -> tableNames.add(QueryKey.tableName(table)));
+        synchronized (entries) {
+            invalidationVersion++;
+            Iterator<QueryKey> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().dependsOnAnyOf(tableNames)) {
+                    keys.remove();
+                    stats.invalidations(1);
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidationVersion++;
+            stats.invalidations(entries.size());
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public QueryCacheStats stats() {
+        return stats;
+    }
+
+    private <T> T load(QueryKey key, Supplier<T> query) {
+        long version;
+        synchronized (entries) {
+            version = invalidationVersion;
+        }
+        stats.load();
+        T value = query.get();
+        synchronized (entries) {
+            if (version == invalidationVersion) {
+                entries.put(key, new CachedResult(value, nanoClock.getAsLong() + timeToLiveNanos));
+                evictLeastRecentlyUsed();
+            }
+        }
+        return value;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        if (entries.size() > maxSize) {
+            Iterator<QueryKey> leastRecentlyUsed = entries.keySet().iterator();
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            stats.eviction();
+        }
+    }
+
+    private CachedResult cachedResult(QueryKey key) {
+        synchronized (entries) {
+            CachedResult entry = entries.get(key);
+            if (entry != null && nanoClock.getAsLong() - entry.expiresAt >= 0) {
+                entries.remove(key);
+                stats.eviction();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class CachedResult {
+        private final Object value;
+        private final long expiresAt;
+
+        CachedResult(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.codurance.lightaccess.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a {@link QueryCache}. Evictions count the results removed
+ * because the cache was full or they expired, invalidations those removed
+ * because their tables changed.
+ */
+public class QueryCacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of queries executed, which is lower than the misses when concurrent misses share a query.
+     */
+    public long loads() {
+        return loads.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public long invalidations() {
+        return invalidations.sum();
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void load() {
+        loads.increment();
+    }
+
+    void eviction() {
+        evictions.increment();
+    }
+
+    void invalidations(int count) {
+        invalidations.add(count);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCacheStats{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", loads=" + loads +
+                ", evictions=" + evictions +
+                ", invalidations=" + invalidations +
+                '}';
+    }
+}
@@ -0,0 +1,96 @@
+package com.codurance.lightaccess.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Identifies the result of a query in a {@link QueryCache} by its SQL and
+ * parameters. The tables the query reads are declared with
+ * {@link #dependsOn(String...)}, so that its result is invalidated when they
+ * are changed; results of queries without dependencies only expire.
+ */
+public final class QueryKey {
+
+    private final String sql;
+    private final Object[] params;
+    private final Set<String> tables;
+    private final int hashCode;
+
+    private QueryKey(String sql, Object[] params, Set<String> tables) {
+        this.sql = sql;
+        this.params = params;
+        this.tables = tables;
+        this.hashCode = 31 * sql.hashCode() + Arrays.deepHashCode(params);
+    }
+
+    /**
+     * @param sql SQL of the query.
+     * @param params parameters bound to the query, compared with equals.
+     * @return
+     */
+    public static QueryKey of(String sql, Object... params) {
+        return new QueryKey(sql, params.clone(), Collections.emptySet());
+    }
+
+    /**
+     * @param tables tables read by the query.
+     * @return key of the same query, depending on the given tables.
+     */
+    public QueryKey dependsOn(String... tables) {
+        Set<String> dependencies = new LinkedHashSet<>(this.tables);
+        for (String table : tables) {
+            dependencies.add(tableName(table));
+        }
+        return new QueryKey(sql, params, Collections.unmodifiableSet(dependencies));
+    }
+
+    public Set<String> tables() {
+        return tables;
+    }
+
+    boolean dependsOnAnyOf(Set<String> changedTables) {
+        for (String table : tables) {
+            if (changedTables.contains(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return table name without schema nor quotes, in lower case.
+     */
+    static String tableName(String table) {
+        String name = table.substring(table.lastIndexOf('.') + 1);
+        return name.replaceAll("[\"`\\[\\]]", "").toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof QueryKey)) {
+            return false;
+        }
+        QueryKey that = (QueryKey) other;
+        return hashCode == that.hashCode && sql.equals(that.sql) && Arrays.deepEquals(params, that.params);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryKey{" +
+                "sql='" + sql + '\'' +
+                ", params=" + Arrays.deepToString(params) +
+                ", tables=" + tables +
+                '}';
+    }
+}
@@ -0,0 +1,118 @@
+package com.codurance.lightaccess.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Values of a column of a {@link ColumnarResult}, with a bitmap of the rows
+ * where it is null. Rows are selected with the {@code where} methods of each
+ * column type, and aggregations only take into account the selected rows
+ * with a value.
+ */
+public abstract class Column {
+
+    static final int INITIAL_CAPACITY = 256;
+
+    private final String label;
+    private long[] nulls = new long[INITIAL_CAPACITY / Long.SIZE];
+    private int capacity = INITIAL_CAPACITY;
+    private int size = 0;
+
+    Column(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        int word = row >>> 6;
+        return word < nulls.length && (nulls[word] & (1L << row)) != 0;
+    }
+
+    /**
+     * @param rows selected rows.
+     * @return number of selected rows with a value.
+     */
+    public int count(BitSet rows) {
+        int count = 0;
+        for (int row = nextValue(rows, 0); row >= 0; row = nextValue(rows, row + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    void read(ResultSet resultSet, int columnIndex) throws SQLException {
+        int row = size;
+        if (row == capacity) {
+            capacity *= 2;
+            grow(capacity);
+        }
+        if (!readValue(resultSet, columnIndex, row)) {
+            setNull(row);
+        }
+        size++;
+    }
+
+    /**
+     * @param rows selected rows.
+     * @param from first row to look at.
+     * @return first selected row with a value from the given one, or -1 if there is none.
+     */
+    final int nextValue(BitSet rows, int from) {
+        for (int row = rows.nextSetBit(from); row >= 0 && row < size; row = rows.nextSetBit(row + 1)) {
+            if (!isNull(row)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param valueMatches whether the value of a row, which is not null, matches a condition.
+     * @return rows whose value is not null and matches the condition.
+     */
+    final BitSet rowsWhere(IntPredicate valueMatches) {
+        BitSet rows = new BitSet(size);
+        for (int row = 0; row < size; row++) {
+            if (!isNull(row) && valueMatches.test(row)) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Grows the values to the given capacity, once all of them have been read.
+     */
+    abstract void grow(int capacity);
+
+    /**
+     * @return false if the value read is null.
+     */
+    abstract boolean readValue(ResultSet resultSet, int columnIndex, int row) throws SQLException;
+
+    private void setNull(int row) {
+        int word = row >>> 6;
+        if (word >= nulls.length) {
+            nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length * 2));
+        }
+        nulls[word] |= 1L << row;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "label='" + label + '\'' +
+                ", size=" + size +
+                '}';
+    }
+}
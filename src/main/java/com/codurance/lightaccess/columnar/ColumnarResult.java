@@ -0,0 +1,138 @@
+package com.codurance.lightaccess.columnar;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Result loaded column by column into primitive arrays, for scanning,
+ * filtering and aggregating a few columns of many rows. Integer columns are
+ * loaded into an {@link IntColumn}, big integers into a {@link LongColumn},
+ * floating point numbers into a {@link DoubleColumn}, decimals of up to 18
+ * digits, e.g. prices, exactly into a {@link DecimalColumn}, and all the
+ * others, including larger decimals, as strings into a {@link StringColumn}.
+ */
+public class ColumnarResult {
+
+    private final List<Column> columns;
+    private final Map<String, Column> columnsByLabel = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private int size = 0;
+
+    private ColumnarResult(List<Column> columns) {
+        this.columns = columns;
+        columns.forEach(column -> columnsByLabel.putIfAbsent(column.label(), column));
+    }
+
+    /**
+     * Reads all the remaining records of the result set.
+     *
+     * @param resultSet JDBC result set, which is not closed.
+     * @return
+     * @throws SQLException
+     */
+    public static ColumnarResult from(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        List<Column> columns = new ArrayList<>(metaData.getColumnCount());
+        for (int columnIndex = 1; columnIndex <= metaData.getColumnCount(); columnIndex++) {
+            columns.add(columnFor(metaData, columnIndex));
+        }
+        ColumnarResult result = new ColumnarResult(columns);
+        while (resultSet.next()) {
+            for (int columnIndex = 1; columnIndex <= columns.size(); columnIndex++) {
+                columns.get(columnIndex - 1).read(resultSet, columnIndex);
+            }
+            result.size++;
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return selection of all the rows.
+     */
+    public BitSet allRows() {
+        BitSet rows = new BitSet(size);
+        rows.set(0, size);
+        return rows;
+    }
+
+    public List<Column> columns() {
+        return unmodifiableList(columns);
+    }
+
+    public IntColumn intColumn(String label) {
+        return column(label, IntColumn.class);
+    }
+
+    public LongColumn longColumn(String label) {
+        return column(label, LongColumn.class);
+    }
+
+    public DoubleColumn doubleColumn(String label) {
+        return column(label, DoubleColumn.class);
+    }
+
+    public DecimalColumn decimalColumn(String label) {
+        return column(label, DecimalColumn.class);
+    }
+
+    public StringColumn stringColumn(String label) {
+        return column(label, StringColumn.class);
+    }
+
+    private <C extends Column> C column(String label, Class<C> type) {
+        Column column = columnsByLabel.get(label);
+        if (column == null) {
+            throw new IllegalArgumentException("No column labelled " + label);
+        }
+        if (!type.isInstance(column)) {
+            throw new IllegalArgumentException("Column " + label + " is a " + column.getClass().getSimpleName());
+        }
+        return type.cast(column);
+    }
+
+    private static Column columnFor(ResultSetMetaData metaData, int columnIndex) throws SQLException {
+        String label = metaData.getColumnLabel(columnIndex);
+        switch (metaData.getColumnType(columnIndex)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return new IntColumn(label);
+            case Types.BIGINT:
+                return new LongColumn(label);
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new DoubleColumn(label);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                int precision = metaData.getPrecision(columnIndex);
+                int scale = metaData.getScale(columnIndex);
+                if (precision > 0 && precision <= DecimalColumn.MAX_PRECISION && scale >= 0 && scale <= precision) {
+                    return new DecimalColumn(label, scale);
+                }
+                return new StringColumn(label);
+            default:
+                return new StringColumn(label);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarResult{" +
+                "columns=" + columns +
+                ", size=" + size +
+                '}';
+    }
+}
@@ -0,0 +1,109 @@
+package com.codurance.lightaccess.columnar;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Column of decimal numbers with a fixed scale, e.g. money amounts, held
+ * exactly as longs of their unscaled value. Only decimals of up to
+ * {@link #MAX_PRECISION} digits are loaded into this column.
+ */
+public class DecimalColumn extends Column {
+
+    static final int MAX_PRECISION = 18;
+
+    private final int scale;
+    private long[] unscaledValues = new long[INITIAL_CAPACITY];
+
+    DecimalColumn(String label, int scale) {
+        super(label);
+        this.scale = scale;
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    /**
+     * @param row index of the row, from 0.
+     * @return value of the row, null when null.
+     */
+    public BigDecimal get(int row) {
+        return isNull(row) ? null : BigDecimal.valueOf(unscaledValues[row], scale);
+    }
+
+    /**
+     * @param predicate condition on the values.
+     * @return rows whose value is not null and matches the condition.
+     */
+    public BitSet where(Predicate<BigDecimal> predicate) {
+        return rowsWhere(row -> predicate.test(BigDecimal.valueOf(unscaledValues[row], scale)));
+    }
+
+    /**
+     * @param rows selected rows.
+     * @return sum of the values of the selected rows, with the scale of the column.
+     * @throws ArithmeticException if the unscaled sum overflows a long.
+     */
+    public BigDecimal sum(BitSet rows) {
+        long sum = 0;
+        for (int row = nextValue(rows, 0); row >= 0; row = nextValue(rows, row + 1)) {
+            sum = Math.addExact(sum, unscaledValues[row]);
+        }
+        return BigDecimal.valueOf(sum, scale);
+    }
+
+    public Optional<BigDecimal> min(BitSet rows) {
+        int row = nextValue(rows, 0);
+        if (row < 0) {
+            return Optional.empty();
+        }
+        long min = unscaledValues[row];
+        for (row = nextValue(rows, row + 1); row >= 0; row = nextValue(rows, row + 1)) {
+            min = Math.min(min, unscaledValues[row]);
+        }
+        return Optional.of(BigDecimal.valueOf(min, scale));
+    }
+
+    public Optional<BigDecimal> max(BitSet rows) {
+        int row = nextValue(rows, 0);
+        if (row < 0) {
+            return Optional.empty();
+        }
+        long max = unscaledValues[row];
+        for (row = nextValue(rows, row + 1); row >= 0; row = nextValue(rows, row + 1)) {
+            max = Math.max(max, unscaledValues[row]);
+        }
+        return Optional.of(BigDecimal.valueOf(max, scale));
+    }
+
+    /**
+     * @param rows selected rows.
+     * @return average of the values of the selected rows, rounded to 34 digits.
+     */
+    public Optional<BigDecimal> average(BitSet rows) {
+        int count = count(rows);
+        return (count == 0) ? Optional.empty() : Optional.of(sum(rows).divide(BigDecimal.valueOf(count), MathContext.DECIMAL128));
+    }
+
+    @Override
+    void grow(int capacity) {
+        unscaledValues = Arrays.copyOf(unscaledValues, capacity);
+    }
+
+    @Override
+    boolean readValue(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+        BigDecimal value = resultSet.getBigDecimal(columnIndex);
+        if (value == null) {
+            return false;
+        }
+        unscaledValues[row] = value.setScale(scale).unscaledValue().longValueExact();
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package com.codurance.lightaccess.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.OptionalDouble;
+import java.util.function.DoublePredicate;
+
+public class DoubleColumn extends Column {
+
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    DoubleColumn(String label) {
+        super(label);
+    }
+
+    /**
+     * @param row index of the row, from 0.
+     * @return value of the row, 0 when null.
+     */
+    public double get(int row) {
+        return values[row];
+    }
+
+    /**
+     * @param predicate condition on the values.
+     * @return rows whose value is not null and matches the condition.
+     */
+    public BitSet where(DoublePredicate predicate) {
+        return rowsWhere(row -> predicate.test(values[row]));
+    }
+
+    public double sum(BitSet rows) {
+        double sum = 0;
+        for (int row = nextValue(rows, 0); row >= 0; row = nextValue(rows, row + 1)) {
+            sum += values[row];
+        }
+        return sum;
+    }
+
+    public OptionalDouble min(BitSet rows) {
+        int row = nextValue(rows, 0);
+        if (row < 0) {
+            return OptionalDouble.empty();
+        }
+        double min = values[row];
+        for (row = nextValue(rows, row + 1); row >= 0; row = nextValue(rows, row + 1)) {
+            min = Math.min(min, values[row]);
+        }
+        return OptionalDouble.of(min);
+    }
+
+    public OptionalDouble max(BitSet rows) {
+        int row = nextValue(rows, 0);
+        if (row < 0) {
+            return OptionalDouble.empty();
+        }
+        double max = values[row];
+        for (row = nextValue(rows, row + 1); row >= 0; row = nextValue(rows, row + 1)) {
+            max = Math.max(max, values[row]);
+        }
+        return OptionalDouble.of(max);
+    }
+
+    public OptionalDouble average(BitSet rows) {
+        int count = count(rows);
+        return (count == 0) ? OptionalDouble.empty() : OptionalDouble.of(sum(rows) / count);
+    }
+
+    @Override
+    void grow(int capacity) {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    boolean readValue(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+        values[row] = resultSet.getDouble(columnIndex);
+        return !resultSet.wasNull();
+    }
+}
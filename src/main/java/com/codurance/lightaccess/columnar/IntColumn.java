@@ -0,0 +1,86 @@
+package com.codurance.lightaccess.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.function.IntPredicate;
+
+public class IntColumn extends Column {
+
+    private int[] values = new int[INITIAL_CAPACITY];
+
+    IntColumn(String label) {
+        super(label);
+    }
+
+    /**
+     * @param row index of the row, from 0.
+     * @return value of the row, 0 when null.
+     */
+    public int get(int row) {
+        return values[row];
+    }
+
+    /**
+     * @param predicate condition on the values.
+     * @return rows whose value is not null and matches the condition.
+     */
+    public BitSet where(IntPredicate predicate) {
+        return rowsWhere(row -> predicate.test(values[row]));
+    }
+
+    /**
+     * @param rows selected rows.
+     * @return sum of the values of the selected rows, which cannot overflow as there are fewer than 2^31 rows.
+     */
+    public long sum(BitSet rows) {
+        long sum = 0;
+        for (int row = nextValue(rows, 0); row >= 0; row = nextValue(rows, row + 1)) {
+            sum += values[row];
+        }
+        return sum;
+    }
+
+    public OptionalInt min(BitSet rows) {
+        int row = nextValue(rows, 0);
+        if (row < 0) {
+            return OptionalInt.empty();
+        }
+        int min = values[row];
+        for (row = nextValue(rows, row + 1); row >= 0; row = nextValue(rows, row + 1)) {
+            min = Math.min(min, values[row]);
+        }
+        return OptionalInt.of(min);
+    }
+
+    public OptionalInt max(BitSet rows) {
+        int row = nextValue(rows, 0);
+        if (row < 0) {
+            return OptionalInt.empty();
+        }
+        int max = values[row];
+        for (row = nextValue(rows, row + 1); row >= 0; row = nextValue(rows, row + 1)) {
+            max = Math.max(max, values[row]);
+        }
+        return OptionalInt.of(max);
+    }
+
+    public OptionalDouble average(BitSet rows) {
+        int count = count(rows);
+        return (count == 0) ? OptionalDouble.empty() : OptionalDouble.of((double) sum(rows) / count);
+    }
+
+    @Override
+    void grow(int capacity) {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    boolean readValue(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+        values[row] = resultSet.getInt(columnIndex);
+        return !resultSet.wasNull();
+    }
+}
@@ -0,0 +1,96 @@
+package com.codurance.lightaccess.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.function.LongPredicate;
+
+public class LongColumn extends Column {
+
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    LongColumn(String label) {
+        super(label);
+    }
+
+    /**
+     * @param row index of the row, from 0.
+     * @return value of the row, 0 when null.
+     */
+    public long get(int row) {
+        return values[row];
+    }
+
+    /**
+     * @param predicate condition on the values.
+     * @return rows whose value is not null and matches the condition.
+     */
+    public BitSet where(LongPredicate predicate) {
+        return rowsWhere(row -> predicate.test(values[row]));
+    }
+
+    /**
+     * @param rows selected rows.
+     * @return sum of the values of the selected rows.
+     * @throws ArithmeticException if the sum overflows a long.
+     */
+    public long sum(BitSet rows) {
+        long sum = 0;
+        for (int row = nextValue(rows, 0); row >= 0; row = nextValue(rows, row + 1)) {
+            sum = Math.addExact(sum, values[row]);
+        }
+        return sum;
+    }
+
+    public OptionalLong min(BitSet rows) {
+        int row = nextValue(rows, 0);
+        if (row < 0) {
+            return OptionalLong.empty();
+        }
+        long min = values[row];
+        for (row = nextValue(rows, row + 1); row >= 0; row = nextValue(rows, row + 1)) {
+            min = Math.min(min, values[row]);
+        }
+        return OptionalLong.of(min);
+    }
+
+    public OptionalLong max(BitSet rows) {
+        int row = nextValue(rows, 0);
+        if (row < 0) {
+            return OptionalLong.empty();
+        }
+        long max = values[row];
+        for (row = nextValue(rows, row + 1); row >= 0; row = nextValue(rows, row + 1)) {
+            max = Math.max(max, values[row]);
+        }
+        return OptionalLong.of(max);
+    }
+
+    /**
+     * @param rows selected rows.
+     * @return average of the values of the selected rows, summed as doubles so that it does not overflow.
+     */
+    public OptionalDouble average(BitSet rows) {
+        int count = 0;
+        double sum = 0;
+        for (int row = nextValue(rows, 0); row >= 0; row = nextValue(rows, row + 1)) {
+            sum += values[row];
+            count++;
+        }
+        return (count == 0) ? OptionalDouble.empty() : OptionalDouble.of(sum / count);
+    }
+
+    @Override
+    void grow(int capacity) {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    boolean readValue(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+        values[row] = resultSet.getLong(columnIndex);
+        return !resultSet.wasNull();
+    }
+}
@@ -0,0 +1,105 @@
+package com.codurance.lightaccess.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Column of strings, encoded with a dictionary: each distinct value is kept
+ * once and rows hold the code of their value. Conditions are evaluated once
+ * per distinct value rather than once per row.
+ */
+public class StringColumn extends Column {
+
+    private static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private int[] rowCodes = new int[INITIAL_CAPACITY];
+
+    StringColumn(String label) {
+        super(label);
+    }
+
+    /**
+     * @param row index of the row, from 0.
+     * @return value of the row, null when null.
+     */
+    public String get(int row) {
+        int code = rowCodes[row];
+        return (code == NULL_CODE) ? null : dictionary.get(code);
+    }
+
+    public int distinctValues() {
+        return dictionary.size();
+    }
+
+    /**
+     * @param predicate condition on the values.
+     * @return rows whose value is not null and matches the condition.
+     */
+    public BitSet where(Predicate<String> predicate) {
+        boolean[] matchingCodes = new boolean[dictionary.size()];
+        for (int code = 0; code < matchingCodes.length; code++) {
+            matchingCodes[code] = predicate.test(dictionary.get(code));
+        }
+        BitSet rows = new BitSet(size());
+        for (int row = 0; row < size(); row++) {
+            int code = rowCodes[row];
+            if (code != NULL_CODE && matchingCodes[code]) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @param rows selected rows.
+     * @return number of selected rows per value, in the order values were first read.
+     */
+    public Map<String, Integer> countByValue(BitSet rows) {
+        int[] counts = new int[dictionary.size()];
+        for (int row = rows.nextSetBit(0); row >= 0 && row < size(); row = rows.nextSetBit(row + 1)) {
+            int code = rowCodes[row];
+            if (code != NULL_CODE) {
+                counts[code]++;
+            }
+        }
+        Map<String, Integer> countByValue = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                countByValue.put(dictionary.get(code), counts[code]);
+            }
+        }
+        return countByValue;
+    }
+
+    @Override
+    void grow(int capacity) {
+        rowCodes = Arrays.copyOf(rowCodes, capacity);
+    }
+
+    @Override
+    boolean readValue(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+        String value = resultSet.getString(columnIndex);
+        if (value == null) {
+            rowCodes[row] = NULL_CODE;
+            return false;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            codes.put(value, code);
+            dictionary.add(value);
+        }
+        rowCodes[row] = code;
+        return true;
+    }
+}
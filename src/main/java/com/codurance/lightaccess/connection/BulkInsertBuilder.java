@@ -0,0 +1,89 @@
+package com.codurance.lightaccess.connection;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Inserts many rows with multi-row {@code INSERT ... VALUES (...), (...)}
+ * statements, which take a single round trip per statement even with
+ * drivers sending each row of a JDBC batch separately.
+ *
+ * Rows are inserted in statements of as many rows as the parameter and row
+ * limits allow. The remaining rows are inserted in statements of a power of
+ * two rows, so only a few statement shapes are ever prepared, and they can be
+ * reused by the statement cache.
+ */
+public class BulkInsertBuilder {
+
+    private static final int DEFAULT_MAX_PARAMETERS = 32_767;
+    private static final int DEFAULT_MAX_ROWS = 1_000;
+
+    private final Function<String, PreparedStatementBuilder> prepareStatement;
+    private final MultiRowInsert insert;
+    private int maxParameters = DEFAULT_MAX_PARAMETERS;
+    private int maxRows = DEFAULT_MAX_ROWS;
+
+    BulkInsertBuilder(Function<String, PreparedStatementBuilder> prepareStatement, String sql) {
+        this.prepareStatement = prepareStatement;
+        this.insert = MultiRowInsert.of(sql);
+    }
+
+    /**
+     * Maximum number of parameters the driver accepts in a statement, 32767
+     * by default (e.g. 2100 for SQL Server).
+     *
+     * @param maxParameters maximum number of parameters per statement.
+     * @return
+     */
+    public BulkInsertBuilder withMaxParameters(int maxParameters) {
+        if (maxParameters < insert.parametersPerRow()) {
+            throw new IllegalArgumentException("Max parameters must allow at least one row of "
+                                                       + insert.parametersPerRow() + " parameters: " + maxParameters);
+        }
+        this.maxParameters = maxParameters;
+        return this;
+    }
+
+    /**
+     * @param maxRows maximum number of rows per statement, 1000 by default.
+     * @return
+     */
+    public BulkInsertBuilder withMaxRows(int maxRows) {
+        if (maxRows <= 0) {
+            throw new IllegalArgumentException("Max rows must be positive: " + maxRows);
+        }
+        this.maxRows = maxRows;
+        return this;
+    }
+
+    /**
+     * @param rows rows inserted.
+     * @param bindRow binds the parameters of a row, in the order of the VALUES tuple.
+     * @return number of rows inserted.
+     */
+    public <T> int execute(Collection<T> rows, BiConsumer<PreparedStatementBuilder, T> bindRow) {
+        int rowsPerStatement = rowsPerStatement();
+        Iterator<T> remainingRows = rows.iterator();
+        int remaining = rows.size();
+        int inserted = 0;
+        while (remaining > 0) {
+            int statementRows = (remaining >= rowsPerStatement) ? rowsPerStatement : Integer.highestOneBit(remaining);
+            PreparedStatementBuilder statement = prepareStatement.apply(insert.sql(statementRows));
+            for (int i = 0; i < statementRows; i++) {
+                bindRow.accept(statement, remainingRows.next());
+            }
+            inserted += statement.executeUpdate();
+            remaining -= statementRows;
+        }
+        return inserted;
+    }
+
+    private int rowsPerStatement() {
+        if (insert.parametersPerRow() == 0) {
+            return maxRows;
+        }
+        return Math.min(maxRows, maxParameters / insert.parametersPerRow());
+    }
+}
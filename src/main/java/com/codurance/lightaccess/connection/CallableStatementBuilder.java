@@ -5,16 +5,40 @@ import com.codurance.lightaccess.mapping.LAResultSet;
 
 import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
 
 public class CallableStatementBuilder {
 
+    private final String sql;
+    private final Consumer<String> onCall;
     private CallableStatement callableStatement;
+    private OpenResources.Resource statement;
+    private ResultSet resultSet;
 
     public CallableStatementBuilder(Connection connection, String sql) {
+        this(connection, sql, statement -> {}, new OpenResources(null));
+    }
+
+    CallableStatementBuilder(Connection connection, String sql, Consumer<String> onCall, OpenResources openResources) {
+        this.sql = sql;
+        this.onCall = onCall;
         this.callableStatement = Throwables.executeQuery(() -> connection.prepareCall(sql));
+        this.statement = openResources.open(sql, this::close);
     }
 
     public LAResultSet executeQuery() {
-        return Throwables.executeQuery(() -> new LAResultSet(callableStatement.executeQuery()));
+        onCall.accept(sql);
+        resultSet = Throwables.executeQuery(() -> callableStatement.executeQuery());
+        return new LAResultSet(resultSet, statement);
+    }
+
+    private void close() throws SQLException {
+        try (CallableStatement ignored = callableStatement) {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+        }
     }
 }
@@ -1,13 +1,87 @@
 package com.codurance.lightaccess.connection;
 
+import com.codurance.lightaccess.mapping.ColumnLabelCache;
+import com.codurance.lightaccess.metrics.LightAccessListener;
+
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.codurance.lightaccess.executables.Throwables.executeQuery;
 
 public class LAConnection implements AutoCloseable {
 
     private Connection connection;
+    private StatementCache statementCache;
+    private StatementCache ownStatementCache;
+    private LightAccessListener listener;
+    private OpenResources openResources;
+    private ColumnLabelCache columnLabelCache;
+    private Boolean autoCommitBeforeTransaction;
+    private Integer isolationBeforeTransaction;
+    private Boolean readOnlyBefore;
+    private boolean inTransaction = false;
+    private Runnable onClose = () -> {};
+    private final Set<String> executedUpdates = new LinkedHashSet<>();
+    private final Consumer<String> recordUpdate = executedUpdates::add;
 
     public LAConnection(Connection connection) {
+        this(connection, 0, new StatementCacheStats());
+    }
+
+    /**
+     * Reuses up to {@code statementCacheSize} prepared statements, the least
+     * recently used being closed when the cache is full. Statements are cached
+     * for as long as this connection is open, unless the JDBC connection
+     * provides its own {@link StatementCache}, e.g. a connection from
+     * {@link com.codurance.lightaccess.pool.LAConnectionPool} with a
+     * statement cache, in which case they are cached for as long as the
+     * JDBC connection is open.
+     *
+     * @param connection JDBC connection.
+     * @param statementCacheSize maximum number of cached prepared statements.
+     * @param statementCacheStats counters updated by the statement cache.
+     */
+    public LAConnection(Connection connection, int statementCacheSize, StatementCacheStats statementCacheStats) {
+        this(connection, statementCacheSize, statementCacheStats, LightAccessListener.NONE);
+    }
+
+    /**
+     * @param connection JDBC connection.
+     * @param statementCacheSize maximum number of cached prepared statements.
+     * @param statementCacheStats counters updated by the statement cache.
+     * @param listener notified of the prepared statements executed with this connection.
+     * @see #LAConnection(Connection, int, StatementCacheStats)
+     */
+    public LAConnection(Connection connection, int statementCacheSize, StatementCacheStats statementCacheStats,
+                        LightAccessListener listener) {
+        this(connection, statementCacheSize, statementCacheStats, listener, null);
+    }
+
+    /**
+     * @param connection JDBC connection.
+     * @param statementCacheSize maximum number of cached prepared statements.
+     * @param statementCacheStats counters updated by the statement cache.
+     * @param listener notified of the prepared statements executed with this connection.
+     * @param leakDetector reports the statements held open for too long, or null.
+     * @see #LAConnection(Connection, int, StatementCacheStats)
+     */
+    public LAConnection(Connection connection, int statementCacheSize, StatementCacheStats statementCacheStats,
+                        LightAccessListener listener, LeakDetector leakDetector) {
         this.connection = connection;
+        this.statementCache = executeQuery(() -> connection.isWrapperFor(StatementCache.class)
+                                                 ? connection.unwrap(StatementCache.class)
+                                                 : null);
+        if (statementCache == null) {
+            this.ownStatementCache = new StatementCache(connection, statementCacheSize, statementCacheStats);
+            this.statementCache = ownStatementCache;
+        }
+        this.listener = listener;
+        this.openResources = new OpenResources(leakDetector);
     }
 
     /**
@@ -18,7 +92,20 @@ public class LAConnection implements AutoCloseable {
      * @return
      */
     public PreparedStatementBuilder prepareStatement(String sql) {
-        return new PreparedStatementBuilder(connection, sql);
+        return new PreparedStatementBuilder(statementCache, sql, listener, recordUpdate, columnLabelCache, openResources);
+    }
+
+    /**
+     * Used for inserting many rows with few round trips, by rewriting a
+     * single row insert into multi-row inserts.
+     *
+     * @param insertSql insert with a single VALUES tuple, e.g. {@code insert into products (id, name) values (?, ?)},
+     *                  and no parameters after it, e.g. in an {@code on conflict} clause.
+     * @return
+     * @throws IllegalArgumentException if the insert does not have a single VALUES tuple or has parameters after it.
+     */
+    public BulkInsertBuilder bulkInsert(String insertSql) {
+        return new BulkInsertBuilder(this::prepareStatement, insertSql);
     }
 
     /**
@@ -28,7 +115,7 @@ public class LAConnection implements AutoCloseable {
      * @return
      */
     public StatementBuilder statement(String ddl) {
-        return new StatementBuilder(connection, ddl);
+        return new StatementBuilder(connection, ddl, recordUpdate, openResources);
     }
 
     /**
@@ -38,16 +125,151 @@ public class LAConnection implements AutoCloseable {
      * @return
      */
     public CallableStatementBuilder callableStatement(String sql) {
-        return new CallableStatementBuilder(connection, sql);
+        return new CallableStatementBuilder(connection, sql, recordUpdate, openResources);
+    }
+
+    /**
+     * @return metadata of the database, e.g. to choose the SQL supported by it.
+     * @throws SQLException
+     */
+    public DatabaseMetaData metaData() throws SQLException {
+        return connection.getMetaData();
+    }
+
+    /**
+     * SQL of the DML and DDL statements and of the calls executed with this
+     * connection, used to find out the tables it may have changed.
+     *
+     * @return
+     */
+    public Set<String> executedUpdates() {
+        return Collections.unmodifiableSet(executedUpdates);
     }
 
     /**
-     * Closes the connection.
+     * Starts a transaction, which lasts until {@link #commit()} or
+     * {@link #rollback()} is called, or rolled back when the connection is
+     * closed before. The auto-commit mode and isolation level of the
+     * connection are restored when it is closed.
+     *
+     * @param isolation isolation level of the transaction.
+     * @throws SQLException
+     */
+    public void beginTransaction(TransactionIsolation isolation) throws SQLException {
+        if (autoCommitBeforeTransaction == null) {
+            autoCommitBeforeTransaction = connection.getAutoCommit();
+        }
+        if (isolation != TransactionIsolation.DEFAULT) {
+            if (isolationBeforeTransaction == null) {
+                isolationBeforeTransaction = connection.getTransactionIsolation();
+            }
+            connection.setTransactionIsolation(isolation.level());
+        }
+        connection.setAutoCommit(false);
+        inTransaction = true;
+    }
+
+    /**
+     * Hints the driver that the connection is only used for reading, e.g.
+     * so that it can be served by a replica. The previous mode of the
+     * connection is restored when it is closed.
+     *
+     * @param readOnly whether the connection is only used for reading.
+     * @throws SQLException
+     */
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        if (readOnlyBefore == null) {
+            readOnlyBefore = connection.isReadOnly();
+        }
+        connection.setReadOnly(readOnly);
+    }
+
+    /**
+     * @param columnLabelCache column labels of the statements, shared by their results.
+     * @return
+     */
+    public LAConnection withColumnLabelCache(ColumnLabelCache columnLabelCache) {
+        this.columnLabelCache = columnLabelCache;
+        return this;
+    }
+
+    /**
+     * @param callback run once the connection has been closed, even if closing it fails.
+     * @return
+     */
+    public LAConnection onClose(Runnable callback) {
+        Runnable previous = onClose;
+        onClose = () -> {
+            previous.run();
+            callback.run();
+        };
+        return this;
+    }
+
+    public void commit() throws SQLException {
+        connection.commit();
+        inTransaction = false;
+    }
+
+    public void rollback() throws SQLException {
+        connection.rollback();
+        inTransaction = false;
+    }
+
+    /**
+     * @return number of statements and result sets created with this connection and not closed yet.
+     */
+    public int openResources() {
+        return openResources.size();
+    }
+
+    /**
+     * Closes the statements and result sets left open, rolls back the
+     * transaction neither committed nor rolled back, restores the settings
+     * changed for the transaction, and closes the statements cached by this
+     * connection and the connection. The settings are restored even if the
+     * rollback fails, except for the auto-commit mode, which would commit
+     * the transaction instead.
      *
      * @throws Exception
      */
     @Override
     public void close() throws Exception {
-        connection.close();
+        try (Connection ignored = connection) {
+            try (StatementCache ignoredCache = ownStatementCache) {
+                openResources.closeAll();
+            } finally {
+                try {
+                    rollbackOpenTransaction();
+                } finally {
+                    restoreTransactionSettings();
+                }
+            }
+        } finally {
+            Runnable callbacks = onClose;
+            onClose = () -> {};
+            callbacks.run();
+        }
+    }
+
+    private void rollbackOpenTransaction() throws SQLException {
+        if (inTransaction) {
+            rollback();
+        }
+    }
+
+    private void restoreTransactionSettings() throws SQLException {
+        try {
+            if (isolationBeforeTransaction != null) {
+                connection.setTransactionIsolation(isolationBeforeTransaction);
+            }
+            if (readOnlyBefore != null) {
+                connection.setReadOnly(readOnlyBefore);
+            }
+        } finally {
+            if (autoCommitBeforeTransaction != null && !inTransaction) {
+                connection.setAutoCommit(autoCommitBeforeTransaction);
+            }
+        }
     }
 }
@@ -0,0 +1,129 @@
+package com.codurance.lightaccess.connection;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reports, as warnings logged with {@link java.util.logging}, the statements
+ * and result sets held open longer than a threshold, along with the stack
+ * trace of the code that created them. Each resource is reported once: when
+ * found by the periodic check, when it is eventually closed, or when its
+ * connection closes it because it was never closed.
+ *
+ * Capturing the allocation site costs a stack trace per statement, so it is
+ * meant for tests and troubleshooting rather than always on in production.
+ */
+public class LeakDetector implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(LeakDetector.class.getName());
+
+    private final long thresholdNanos;
+    private final LongSupplier nanoClock;
+    private final Set<Allocation> allocations = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService checker;
+
+    /**
+     * Checks for resources held longer than the threshold every
+     * {@code threshold}, on a daemon thread.
+     *
+     * @param threshold time a statement or result set may be held open.
+     */
+    public LeakDetector(Duration threshold) {
+        this(threshold, System::nanoTime);
+        checker.scheduleAtFixedRate(this::checkForLeaks, thresholdNanos, thresholdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    LeakDetector(Duration threshold, LongSupplier nanoClock) {
+        if (threshold.isNegative() || threshold.isZero()) {
+            throw new IllegalArgumentException("Leak detection threshold must be positive: " + threshold);
+        }
+        this.thresholdNanos = threshold.toNanos();
+        this.nanoClock = nanoClock;
+        this.checker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "light-access-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reports the resources held longer than the threshold that have not
+     * been reported yet.
+     */
+    public void checkForLeaks() {
+        long now = nanoClock.getAsLong();
+        for (Allocation allocation : allocations) {
+            reportIfHeldTooLong(allocation, now);
+        }
+    }
+
+    /**
+     * @return number of statements and result sets currently open.
+     */
+    public int openResources() {
+        return allocations.size();
+    }
+
+    /**
+     * Stops the periodic check.
+     */
+    @Override
+    public void close() {
+        checker.shutdownNow();
+    }
+
+    Allocation allocated(String sql) {
+        Allocation allocation = new Allocation(sql, nanoClock.getAsLong(), new Throwable("Allocation site"));
+        allocations.add(allocation);
+        return allocation;
+    }
+
+    void released(Allocation allocation) {
+        allocations.remove(allocation);
+        reportIfHeldTooLong(allocation, nanoClock.getAsLong());
+    }
+
+    void closedWithConnection(Allocation allocation) {
+        allocations.remove(allocation);
+        if (allocation.markReported()) {
+            LOGGER.log(Level.WARNING, "Statement not closed before its connection: " + allocation.sql, allocation.site);
+        }
+    }
+
+    private void reportIfHeldTooLong(Allocation allocation, long now) {
+        long heldNanos = now - allocation.startNanos;
+        if (heldNanos > thresholdNanos && allocation.markReported()) {
+            LOGGER.log(Level.WARNING,
+                       "Statement held open for " + TimeUnit.NANOSECONDS.toMillis(heldNanos) + " ms: " + allocation.sql,
+                       allocation.site);
+        }
+    }
+
+    static final class Allocation {
+        private final String sql;
+        private final long startNanos;
+        private final Throwable site;
+        private boolean reported = false;
+
+        private Allocation(String sql, long startNanos, Throwable site) {
+            this.sql = sql;
+            this.startNanos = startNanos;
+            this.site = site;
+        }
+
+        private synchronized boolean markReported() {
+            if (reported) {
+                return false;
+            }
+            reported = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.codurance.lightaccess.connection;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single row insert statement rewritten to insert several rows at a time,
+ * by repeating its VALUES tuple, e.g.
+ * {@code insert into products (id, name) values (?, ?), (?, ?)}. The
+ * rewritten statements are cached per number of rows, for the most recently
+ * used inserts.
+ */
+class MultiRowInsert {
+
+    private static final int MAX_CACHED_INSERTS = 1_000;
+    private static final LinkedHashMap<String, MultiRowInsert> INSERTS_BY_SQL = new LinkedHashMap<>(16, 0.75f, true);
+    private static final String VALUES = "values";
+
+    private final String prefix;
+    private final String row;
+    private final String suffix;
+    private final int parametersPerRow;
+    private final Map<Integer, String> sqlByRows = new ConcurrentHashMap<>();
+
+    private MultiRowInsert(String prefix, String row, String suffix, int parametersPerRow) {
+        this.prefix = prefix;
+        this.row = row;
+        this.suffix = suffix;
+        this.parametersPerRow = parametersPerRow;
+    }
+
+    /**
+     * @param sql insert statement with a single VALUES tuple, e.g. {@code insert into products (id, name) values (?, ?)},
+     *            and no parameters after it.
+     * @return
+     */
+    static MultiRowInsert of(String sql) {
+        synchronized (INSERTS_BY_SQL) {
+            MultiRowInsert insert = INSERTS_BY_SQL.get(sql);
+            if (insert != null) {
+                return insert;
+            }
+        }
+        MultiRowInsert insert = parse(sql);
+        synchronized (INSERTS_BY_SQL) {
+            INSERTS_BY_SQL.put(sql, insert);
+            evictLeastRecentlyUsed();
+        }
+        return insert;
+    }
+
+    private static void evictLeastRecentlyUsed() {
+        if (INSERTS_BY_SQL.size() > MAX_CACHED_INSERTS) {
+            Iterator<String> leastRecentlyUsed = INSERTS_BY_SQL.keySet().iterator();
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    int parametersPerRow() {
+        return parametersPerRow;
+    }
+
+    /**
+     * @param rows number of rows inserted by the statement.
+     * @return
+     */
+    String sql(int rows) {
+        return sqlByRows.computeIfAbsent(rows, this::rewrite);
+    }
+
+    private String rewrite(int rows) {
+        StringBuilder sql = new StringBuilder(prefix.length() + (row.length() + 2) * rows + suffix.length());
+        sql.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.append(suffix).toString();
+    }
+
+    private static MultiRowInsert parse(String sql) {
+        int values = indexOfValues(sql);
+        int rowStart = skipWhitespace(sql, values + VALUES.length());
+        if (values < 0 || rowStart == sql.length() || sql.charAt(rowStart) != '(') {
+            throw notASingleRowInsert(sql);
+        }
+        int depth = 0;
+        int parameters = 0;
+        for (int i = rowStart; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = endOfQuoted(sql, i);
+            } else if (c == '?') {
+                parameters++;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                int rowEnd = i + 1;
+                int next = skipWhitespace(sql, rowEnd);
+                if (next < sql.length() && sql.charAt(next) == ',') {
+                    throw notASingleRowInsert(sql);
+                }
+                if (hasParameters(sql, rowEnd)) {
+                    throw new IllegalArgumentException("Parameters after the VALUES tuple would be repeated with each row: " + sql);
+                }
+                return new MultiRowInsert(sql.substring(0, rowStart), sql.substring(rowStart, rowEnd),
+                                          sql.substring(rowEnd), parameters);
+            }
+        }
+        throw notASingleRowInsert(sql);
+    }
+
+    private static boolean hasParameters(String sql, int from) {
+        for (int i = from; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = endOfQuoted(sql, i);
+            } else if (c == '?') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOfValues(String sql) {
+        for (int i = 0; i <= sql.length() - VALUES.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = endOfQuoted(sql, i);
+            } else if (sql.regionMatches(true, i, VALUES, 0, VALUES.length())
+                    && !isIdentifierPart(sql, i - 1) && !isIdentifierPart(sql, i + VALUES.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIdentifierPart(String sql, int index) {
+        return index >= 0 && index < sql.length()
+                && (Character.isLetterOrDigit(sql.charAt(index)) || sql.charAt(index) == '_');
+    }
+
+    private static int endOfQuoted(String sql, int start) {
+        int end = sql.indexOf(sql.charAt(start), start + 1);
+        return (end < 0) ? sql.length() : end;
+    }
+
+    private static int skipWhitespace(String sql, int index) {
+        int i = Math.max(index, 0);
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static IllegalArgumentException notASingleRowInsert(String sql) {
+        return new IllegalArgumentException("Not an insert with a single VALUES tuple: " + sql);
+    }
+}
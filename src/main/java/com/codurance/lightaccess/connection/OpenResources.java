@@ -0,0 +1,88 @@
+package com.codurance.lightaccess.connection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Statements and result sets created with a connection and not closed yet.
+ * The ones still open when the connection closes are closed then, most
+ * recently created first.
+ */
+class OpenResources {
+
+    private final LeakDetector leakDetector;
+    private final Set<Resource> open = new LinkedHashSet<>();
+
+    OpenResources(LeakDetector leakDetector) {
+        this.leakDetector = leakDetector;
+    }
+
+    /**
+     * @param sql SQL of the statement, reported by the leak detector.
+     * @param close closes the statement, or releases it for reuse.
+     * @return closes the resource once, no matter how many times it is called.
+     */
+    Resource open(String sql, AutoCloseable close) {
+        Resource resource = new Resource(close, (leakDetector != null) ? leakDetector.allocated(sql) : null);
+        open.add(resource);
+        return resource;
+    }
+
+    int size() {
+        return open.size();
+    }
+
+    void closeAll() throws Exception {
+        List<Resource> resources = new ArrayList<>(open);
+        Exception failure = null;
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            Resource resource = resources.get(i);
+            try {
+                resource.close(true);
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    class Resource implements AutoCloseable {
+        private final AutoCloseable close;
+        private final LeakDetector.Allocation allocation;
+        private boolean closed = false;
+
+        private Resource(AutoCloseable close, LeakDetector.Allocation allocation) {
+            this.close = close;
+            this.allocation = allocation;
+        }
+
+        @Override
+        public void close() throws Exception {
+            close(false);
+        }
+
+        private void close(boolean byConnection) throws Exception {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            open.remove(this);
+            if (allocation != null) {
+                if (byConnection) {
+                    leakDetector.closedWithConnection(allocation);
+                } else {
+                    leakDetector.released(allocation);
+                }
+            }
+            close.close();
+        }
+    }
+}
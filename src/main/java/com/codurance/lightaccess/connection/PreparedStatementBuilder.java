@@ -1,22 +1,54 @@
 package com.codurance.lightaccess.connection;
 
 import com.codurance.lightaccess.executables.Throwables;
+import com.codurance.lightaccess.mapping.ColumnLabelCache;
 import com.codurance.lightaccess.mapping.LAResultSet;
+import com.codurance.lightaccess.metrics.LightAccessListener;
 
-import java.sql.Connection;
+import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 import static com.codurance.lightaccess.executables.Throwables.execute;
 
 public class PreparedStatementBuilder {
 
+    private final StatementCache statementCache;
+    private final String sql;
+    private final LightAccessListener listener;
+    private final Consumer<String> onUpdate;
+    private final ColumnLabelCache columnLabelCache;
     private PreparedStatement preparedStatement;
+    private final OpenResources.Resource statement;
+    private ResultSet resultSet;
     private int paramIndex = 0;
 
-    PreparedStatementBuilder(Connection connection, String sql) {
-        execute(() -> this.preparedStatement = connection.prepareStatement(sql));
+    private int batchSize = 0;
+    private int pendingBatchRows = 0;
+    private int[] batchUpdateCounts = new int[0];
+    private int batchUpdateCountsSize = 0;
+
+    PreparedStatementBuilder(StatementCache statementCache, String sql, LightAccessListener listener,
+                             Consumer<String> onUpdate, ColumnLabelCache columnLabelCache, OpenResources openResources) {
+        this.statementCache = statementCache;
+        this.sql = sql;
+        this.listener = listener;
+        this.onUpdate = onUpdate;
+        this.columnLabelCache = columnLabelCache;
+        this.preparedStatement = measure(() -> statementCache.prepare(sql), listener::statementPrepared);
+        this.statement = openResources.open(sql, this::release);
     }
 
     public PreparedStatementBuilder withParam(String param) {
@@ -27,30 +59,246 @@ public class PreparedStatementBuilder {
         return withParam((paramIndex) -> execute(() -> preparedStatement.setInt(paramIndex, param)));
     }
 
+    public PreparedStatementBuilder withParam(long param) {
+        return withParam((paramIndex) -> execute(() -> preparedStatement.setLong(paramIndex, param)));
+    }
+
+    public PreparedStatementBuilder withParam(double param) {
+        return withParam((paramIndex) -> execute(() -> preparedStatement.setDouble(paramIndex, param)));
+    }
+
+    public PreparedStatementBuilder withParam(boolean param) {
+        return withParam((paramIndex) -> execute(() -> preparedStatement.setBoolean(paramIndex, param)));
+    }
+
+    public PreparedStatementBuilder withParam(BigDecimal param) {
+        return withParam((paramIndex) -> execute(() -> preparedStatement.setBigDecimal(paramIndex, param)));
+    }
+
+    public PreparedStatementBuilder withParam(byte[] param) {
+        return withParam((paramIndex) -> execute(() -> preparedStatement.setBytes(paramIndex, param)));
+    }
+
+    /**
+     * @param param integer, or empty to bind null.
+     * @return
+     */
+    public PreparedStatementBuilder withParam(OptionalInt param) {
+        return withParam((paramIndex) -> execute(() -> {
+            if (param.isPresent()) {
+                preparedStatement.setInt(paramIndex, param.getAsInt());
+            } else {
+                preparedStatement.setNull(paramIndex, Types.INTEGER);
+            }
+        }));
+    }
+
+    /**
+     * @param param long, or empty to bind null.
+     * @return
+     */
+    public PreparedStatementBuilder withParam(OptionalLong param) {
+        return withParam((paramIndex) -> execute(() -> {
+            if (param.isPresent()) {
+                preparedStatement.setLong(paramIndex, param.getAsLong());
+            } else {
+                preparedStatement.setNull(paramIndex, Types.BIGINT);
+            }
+        }));
+    }
+
     public PreparedStatementBuilder withParam(LocalDate param) {
         return withParam((paramIndex) -> execute(() -> preparedStatement.setDate(paramIndex, Date.valueOf(param))));
     }
 
-    public void executeUpdate() {
+    public PreparedStatementBuilder withParam(LocalDateTime param) {
+        return withParam((paramIndex) -> execute(() -> preparedStatement.setTimestamp(paramIndex, Timestamp.valueOf(param))));
+    }
+
+    public PreparedStatementBuilder withParam(Instant param) {
+        return withParam((paramIndex) -> execute(() -> preparedStatement.setTimestamp(paramIndex, Timestamp.from(param))));
+    }
+
+    /**
+     * Binds a timestamp with time zone, for drivers supporting JDBC 4.2 types.
+     *
+     * @param param timestamp with time zone.
+     * @return
+     */
+    public PreparedStatementBuilder withParam(OffsetDateTime param) {
+        return withParam((paramIndex) -> execute(() -> preparedStatement.setObject(paramIndex, param)));
+    }
+
+    /**
+     * Binds a value whose type is only known at runtime, e.g. by generic
+     * code. java.time values are bound like with the typed methods, other
+     * values as the driver maps them, and null as a null of unknown type.
+     *
+     * @param param value of any type supported by the driver, or null.
+     * @return
+     */
+    public PreparedStatementBuilder withObjectParam(Object param) {
+        if (param instanceof LocalDate) {
+            return withParam((LocalDate) param);
+        }
+        if (param instanceof LocalDateTime) {
+            return withParam((LocalDateTime) param);
+        }
+        if (param instanceof Instant) {
+            return withParam((Instant) param);
+        }
+        if (param == null) {
+            return withParam((paramIndex) -> execute(() -> preparedStatement.setNull(paramIndex, Types.NULL)));
+        }
+        return withParam((paramIndex) -> execute(() -> preparedStatement.setObject(paramIndex, param)));
+    }
+
+    /**
+     * Number of records the driver fetches from the database at a time when
+     * reading the results. Combined with {@link LAResultSet#stream(java.util.function.Function)}
+     * it keeps memory usage constant regardless of the number of records.
+     * Some drivers (e.g. PostgreSQL) only honour it outside auto-commit mode.
+     *
+     * @param fetchSize number of records per fetch.
+     * @return
+     */
+    public PreparedStatementBuilder withFetchSize(int fetchSize) {
+        execute(() -> preparedStatement.setFetchSize(fetchSize));
+        return this;
+    }
+
+    /**
+     * Limits the number of records of the results, the others being
+     * silently dropped. Drivers such as PostgreSQL's pass the limit on to the
+     * database, so that no more records are read than needed.
+     *
+     * @param maxRows maximum number of records, or 0 for no limit.
+     * @return
+     */
+    public PreparedStatementBuilder withMaxRows(int maxRows) {
+        execute(() -> preparedStatement.setMaxRows(maxRows));
+        return this;
+    }
+
+    /**
+     * Sends the batch to the database every time the given number of rows
+     * has been added with {@link #addBatch()}, keeping the driver's batch
+     * buffer bounded. A batch size of 0 (default) sends all rows at once
+     * when {@link #executeBatch()} is called.
+     *
+     * @param batchSize number of rows per round trip.
+     * @return
+     */
+    public PreparedStatementBuilder withBatchSize(int batchSize) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("Batch size must not be negative: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Adds the parameters bound so far as a row of the batch. Parameters
+     * for the next row can then be bound from the first one again.
+     *
+     * @return
+     */
+    public PreparedStatementBuilder addBatch() {
+        execute(() -> preparedStatement.addBatch());
+        paramIndex = 0;
+        pendingBatchRows += 1;
+        if (pendingBatchRows == batchSize) {
+            flushBatch();
+        }
+        return this;
+    }
+
+    /**
+     * Sends the rows not yet flushed to the database and releases the statement.
+     *
+     * @return update counts of all rows added to the batch, in the order they were added.
+     */
+    public int[] executeBatch() {
         execute(() -> {
-            preparedStatement.executeUpdate();
-            preparedStatement.close();
+            flushBatch();
+            statement.close();
         });
+        return Arrays.copyOf(batchUpdateCounts, batchUpdateCountsSize);
+    }
 
+    /**
+     * Executes the statement and releases it.
+     *
+     * @return number of rows changed.
+     */
+    public int executeUpdate() {
+        onUpdate.accept(sql);
+        int updateCount = measure(() -> preparedStatement.executeUpdate(), listener::statementExecuted);
+        execute(statement::close);
+        return updateCount;
     }
 
     public LAResultSet executeQuery() {
-        return Throwables.executeQuery(() -> new LAResultSet(preparedStatement.executeQuery()));
+        resultSet = measure(() -> preparedStatement.executeQuery(), listener::statementExecuted);
+        return new LAResultSet(resultSet, statement, sql, listener, columnLabelCache);
     }
 
     private interface SetParam {
         void execute(int paramCount);
     }
 
+    private interface Timing {
+        void record(String sql, long nanos);
+    }
+
+    private <T> T measure(Throwables.Query<T> step, Timing timing) {
+        long start = System.nanoTime();
+        try {
+            T result = step.call();
+            timing.record(sql, System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            listener.failed(sql, e);
+            throw e;
+        } catch (Exception e) {
+            listener.failed(sql, e);
+            throw new RuntimeException(e);
+        }
+    }
+
     private PreparedStatementBuilder withParam(SetParam setParam) {
         paramIndex += 1;
         execute(() -> setParam.execute(paramIndex));
         return this;
     }
 
+    private void release() throws SQLException {
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+        } finally {
+            statementCache.release(sql, preparedStatement);
+        }
+    }
+
+    private void flushBatch() {
+        if (pendingBatchRows == 0) {
+            return;
+        }
+        onUpdate.accept(sql);
+        int[] updateCounts = measure(() -> preparedStatement.executeBatch(), listener::statementExecuted);
+        appendUpdateCounts(updateCounts);
+        pendingBatchRows = 0;
+    }
+
+    private void appendUpdateCounts(int[] updateCounts) {
+        int requiredSize = batchUpdateCountsSize + updateCounts.length;
+        if (requiredSize > batchUpdateCounts.length) {
+            batchUpdateCounts = Arrays.copyOf(batchUpdateCounts, Math.max(requiredSize, batchUpdateCounts.length * 2));
+        }
+        System.arraycopy(updateCounts, 0, batchUpdateCounts, batchUpdateCountsSize, updateCounts.length);
+        batchUpdateCountsSize = requiredSize;
+    }
+
 }
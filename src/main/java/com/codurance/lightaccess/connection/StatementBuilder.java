@@ -4,20 +4,26 @@ import com.codurance.lightaccess.executables.Throwables;
 
 import java.sql.Connection;
 import java.sql.Statement;
+import java.util.function.Consumer;
 
 import static com.codurance.lightaccess.executables.Throwables.executeWithResource;
 
 public class StatementBuilder {
 
     private Statement statement;
+    private OpenResources.Resource resource;
     private String sql;
+    private Consumer<String> onUpdate;
 
-    StatementBuilder(Connection connection, String sql) {
+    StatementBuilder(Connection connection, String sql, Consumer<String> onUpdate, OpenResources openResources) {
         Throwables.execute(() -> this.statement = connection.createStatement());
+        this.resource = openResources.open(sql, statement);
         this.sql = sql;
+        this.onUpdate = onUpdate;
     }
 
     public void execute() {
-        executeWithResource(statement, () -> statement.execute(sql));
+        onUpdate.accept(sql);
+        executeWithResource(resource, () -> statement.execute(sql));
     }
 }
@@ -0,0 +1,126 @@
+package com.codurance.lightaccess.connection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.FETCH_FORWARD;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+
+/**
+ * Least recently used cache of prepared statements, keyed by SQL, for a
+ * single connection. A statement is taken out of the cache while in use, so
+ * the same SQL can be executed again while its previous results are still
+ * being read. With a maximum size of 0 statements are never cached.
+ *
+ * Connections outliving the {@link LAConnection}s using them, e.g. pooled
+ * ones, provide their own cache through {@link Connection#unwrap(Class)},
+ * so that statements are reused by every query and command using them.
+ */
+public class StatementCache implements AutoCloseable {
+
+    private final Connection connection;
+    private final int maxSize;
+    private final StatementCacheStats stats;
+    private final Map<String, PreparedStatement> statements;
+    private Integer defaultFetchSize;
+
+    /**
+     * @param connection connection the statements are prepared with.
+     * @param maxSize maximum number of cached statements.
+     * @param stats counters updated by the cache.
+     */
+    public StatementCache(Connection connection, int maxSize, StatementCacheStats stats) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Statement cache size must not be negative: " + maxSize);
+        }
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.stats = stats;
+        this.statements = new LinkedHashMap<>();
+    }
+
+    /**
+     * Statements are created forward-only and read-only, so that their
+     * results are read once from first to last and no scrollable or
+     * updatable cursor is kept by the database.
+     *
+     * @param sql SQL of the statement.
+     * @return cached statement of the SQL, reset, or a new one.
+     * @throws SQLException
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.remove(sql);
+        if (statement != null) {
+            stats.hit();
+            reset(statement);
+            return statement;
+        }
+        if (maxSize > 0) {
+            stats.miss();
+        }
+        PreparedStatement prepared = connection.prepareStatement(sql, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY);
+        if (maxSize > 0 && defaultFetchSize == null) {
+            defaultFetchSize = prepared.getFetchSize();
+        }
+        return prepared;
+    }
+
+    void release(String sql, PreparedStatement statement) throws SQLException {
+        if (maxSize == 0 || statement.isClosed() || statements.containsKey(sql)) {
+            statement.close();
+            return;
+        }
+        statements.put(sql, statement);
+        if (statements.size() > maxSize) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Clears the parameters and settings left by the previous use of the
+     * statement, e.g. the maximum number of rows of a page.
+     */
+    private void reset(PreparedStatement statement) throws SQLException {
+        statement.clearParameters();
+        statement.setMaxRows(0);
+        statement.setFetchSize(defaultFetchSize);
+        statement.setFetchDirection(FETCH_FORWARD);
+    }
+
+    private void evictLeastRecentlyUsed() throws SQLException {
+        Iterator<PreparedStatement> leastRecentlyUsed = statements.values().iterator();
+        PreparedStatement evicted = leastRecentlyUsed.next();
+        leastRecentlyUsed.remove();
+        stats.eviction();
+        evicted.close();
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        SQLException failure = null;
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        statements.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
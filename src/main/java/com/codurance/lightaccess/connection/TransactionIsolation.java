@@ -0,0 +1,22 @@
+package com.codurance.lightaccess.connection;
+
+import java.sql.Connection;
+
+public enum TransactionIsolation {
+    /** Keeps the isolation level configured for the connection. */
+    DEFAULT(-1),
+    READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    private final int level;
+
+    TransactionIsolation(int level) {
+        this.level = level;
+    }
+
+    int level() {
+        return level;
+    }
+}
@@ -0,0 +1,88 @@
+package com.codurance.lightaccess.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.regex.Pattern;
+
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+
+/**
+ * Column labels resolved once per SQL statement and shared by all its
+ * results, the least recently used statement being evicted when more than
+ * {@code maxSize} are cached.
+ *
+ * Statements whose columns change (e.g. {@code select *} after a schema
+ * change) keep the labels they were first resolved with until the cache is
+ * invalidated, which happens when a DDL statement is executed by the same
+ * {@link com.codurance.lightaccess.LightAccess}.
+ */
+public class ColumnLabelCache {
+
+    private static final Pattern SCHEMA_CHANGE = Pattern.compile("\\s*(?:create|alter|drop|rename)\\b", CASE_INSENSITIVE);
+
+    private final int maxSize;
+    private final LinkedHashMap<String, ColumnLabels> labelsBySql = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param maxSize maximum number of statements whose labels are cached.
+     */
+    public ColumnLabelCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Column label cache size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Invalidates all the labels if any of the given statements changes
+     * the schema.
+     *
+     * @param sqlStatements SQL of the statements executed.
+     */
+    public void invalidateIfSchemaChangedBy(Collection<String> sqlStatements) {
+        for (String sql : sqlStatements) {
+            if (SCHEMA_CHANGE.matcher(sql).lookingAt()) {
+                invalidateAll();
+                return;
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (labelsBySql) {
+            labelsBySql.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (labelsBySql) {
+            return labelsBySql.size();
+        }
+    }
+
+    ColumnLabels labelsOf(String sql, ResultSet resultSet) throws SQLException {
+        synchronized (labelsBySql) {
+            ColumnLabels labels = labelsBySql.get(sql);
+            if (labels != null) {
+                return labels;
+            }
+        }
+        ColumnLabels labels = ColumnLabels.of(resultSet);
+        synchronized (labelsBySql) {
+            labelsBySql.put(sql, labels);
+            evictLeastRecentlyUsed();
+        }
+        return labels;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        if (labelsBySql.size() > maxSize) {
+            Iterator<String> leastRecentlyUsed = labelsBySql.keySet().iterator();
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.codurance.lightaccess.mapping;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Case-insensitive map of the column labels of a result to their indexes.
+ * When a label is used more than once, it maps to the first column.
+ *
+ * @see ColumnLabelCache
+ */
+class ColumnLabels {
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private ColumnLabels(ResultSetMetaData metaData) throws SQLException {
+        for (int columnIndex = 1; columnIndex <= metaData.getColumnCount(); columnIndex++) {
+            String label = metaData.getColumnLabel(columnIndex);
+            indexes.putIfAbsent(label, columnIndex);
+            indexes.putIfAbsent(label.toLowerCase(Locale.ROOT), columnIndex);
+            indexes.putIfAbsent(label.toUpperCase(Locale.ROOT), columnIndex);
+        }
+    }
+
+    /**
+     * @param resultSet result whose metadata is read.
+     * @return
+     * @throws SQLException
+     */
+    static ColumnLabels of(ResultSet resultSet) throws SQLException {
+        return new ColumnLabels(resultSet.getMetaData());
+    }
+
+    int indexOf(String label) {
+        Integer index = indexes.get(label);
+        if (index == null) {
+            index = indexes.get(label.toLowerCase(Locale.ROOT));
+        }
+        if (index == null) {
+            throw new IllegalArgumentException("No column labelled " + label);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,105 @@
+package com.codurance.lightaccess.mapping;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Levels of a hierarchy of joined tables, e.g. orders, their lines and the
+ * allocations of each line, normalised in a single pass over the results
+ * with {@link LAResultSet#normaliseHierarchy(Hierarchy)}.
+ *
+ * Each level has a key, read from every record. A level is mapped once per
+ * key and parent, the first time the key is read, so records repeated by
+ * the joins do not create duplicates. A null or empty key (e.g. the columns
+ * of a left join without matches) means there is no such level in the record.
+ * Keys are kept in the order they are read.
+ */
+public class Hierarchy<T> {
+
+    private final Function<LAResultSet, ?> key;
+    private final Function<LAResultSet, ?> map;
+    private final Hierarchy<?> children;
+    private final BiFunction<Object, List<?>, T> assemble;
+
+    private Hierarchy(Function<LAResultSet, ?> key, Function<LAResultSet, ?> map,
+                      Hierarchy<?> children, BiFunction<Object, List<?>, T> assemble) {
+        this.key = key;
+        this.map = map;
+        this.children = children;
+        this.assemble = assemble;
+    }
+
+    /**
+     * Lowest level of the hierarchy.
+     *
+     * @param key reads the key of the level.
+     * @param map maps the level, once per key.
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Hierarchy<T> of(Function<LAResultSet, ?> key, Function<LAResultSet, T> map) {
+        return new Hierarchy<>(key, map, null, (value, noChildren) -> (T) value);
+    }
+
+    /**
+     * Level with children, assembled with them once all records are read.
+     *
+     * @param key reads the key of the level.
+     * @param map maps the level, once per key.
+     * @param children next level of the hierarchy.
+     * @param assemble combines the level with its children, in the order they were read.
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <P, C, T> Hierarchy<T> of(Function<LAResultSet, ?> key, Function<LAResultSet, P> map,
+                                            Hierarchy<C> children, BiFunction<P, List<C>, T> assemble) {
+        return new Hierarchy<>(key, map, children, (value, assembledChildren) -> assemble.apply((P) value, (List<C>) assembledChildren));
+    }
+
+    void add(LAResultSet record, Map<Object, Node> nodes) {
+        Object nodeKey = key.apply(record);
+        if (isEmptyKey(nodeKey)) {
+            return;
+        }
+        Node node = nodes.get(nodeKey);
+        if (node == null) {
+            node = new Node(map.apply(record));
+            nodes.put(nodeKey, node);
+        }
+        if (children != null) {
+            children.add(record, node.children);
+        }
+    }
+
+    List<T> assemble(Map<Object, Node> nodes) {
+        List<T> assembled = new ArrayList<>(nodes.size());
+        for (Node node : nodes.values()) {
+            List<?> assembledChildren = (children != null) ? children.assemble(node.children) : null;
+            assembled.add(assemble.apply(node.value, assembledChildren));
+        }
+        return assembled;
+    }
+
+    static boolean isEmptyKey(Object key) {
+        return key == null
+                || (key instanceof Optional && !((Optional<?>) key).isPresent())
+                || (key instanceof OptionalInt && !((OptionalInt) key).isPresent())
+                || (key instanceof OptionalLong && !((OptionalLong) key).isPresent());
+    }
+
+    static class Node {
+        private final Object value;
+        private final Map<Object, Node> children = new LinkedHashMap<>();
+
+        Node(Object value) {
+            this.value = value;
+        }
+    }
+}
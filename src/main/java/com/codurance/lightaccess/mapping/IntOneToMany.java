@@ -0,0 +1,46 @@
+package com.codurance.lightaccess.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link OneToMany} for parents identified by an int key, which is neither
+ * boxed nor hashed through a {@code HashMap}. Keys are collected in the
+ * order they were first put.
+ */
+public class IntOneToMany<V> extends PrimitiveOneToMany<V> {
+
+    @FunctionalInterface
+    public interface Collect<V, T> {
+        T apply(int key, List<V> values);
+    }
+
+    public void put(int key, Optional<V> value) {
+        List<V> children = valuesOf(key);
+        if (value.isPresent()) {
+            children.add(value.get());
+        }
+    }
+
+    /**
+     * Adds a key without values, e.g. a parent without children in a left join.
+     *
+     * @param key parent key.
+     */
+    public void put(int key) {
+        valuesOf(key);
+    }
+
+    public void put(int key, V value) {
+        valuesOf(key).add(value);
+    }
+
+    public <T> List<T> collect(Collect<V, T> collect) {
+        List<T> list = new ArrayList<>(size());
+        for (int entry = 0; entry < size(); entry++) {
+            list.add(collect.apply((int) keyAt(entry), valuesAt(entry)));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,85 @@
+package com.codurance.lightaccess.mapping;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang3.builder.EqualsBuilder.reflectionEquals;
+
+/**
+ * Parents with their children, grouped by the key of the parent rather than
+ * by the parent itself, so that parents with different keys are never
+ * merged even when they are equal. Parents are collected in the order their
+ * keys were first put.
+ */
+public class KeyedOneToMany<K, P, V> {
+
+    private final Map<K, Group<P, V>> data = new LinkedHashMap<>();
+
+    public int size() {
+        return data.size();
+    }
+
+    public <T> List<T> collect(BiFunction<P, List<V>, T> collect) {
+        List<T> list = new ArrayList<>(data.size());
+        data.forEach((key, group) -> list.add(collect.apply(group.parent, group.children)));
+        return list;
+    }
+
+    /**
+     * @param parent maps the parent, only if the key was not put before.
+     * @return children of the key.
+     */
+    List<V> valuesOf(K key, Supplier<P> parent) {
+        Group<P, V> group = data.get(key);
+        if (group == null) {
+            group = new Group<>(parent.get());
+            data.put(key, group);
+        }
+        return group.children;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return reflectionEquals(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        return data.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "KeyedOneToMany{" +
+                "data=" + data +
+                '}';
+    }
+
+    private static final class Group<P, V> {
+        private final P parent;
+        private final List<V> children = new ArrayList<>();
+
+        private Group(P parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return reflectionEquals(this, other);
+        }
+
+        @Override
+        public int hashCode() {
+            return children.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return parent + "=" + children;
+        }
+    }
+}
@@ -1,69 +1,485 @@
 package com.codurance.lightaccess.mapping;
 
+import com.codurance.lightaccess.columnar.ColumnarResult;
+import com.codurance.lightaccess.executables.Throwables;
+import com.codurance.lightaccess.metrics.LightAccessListener;
+
+import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import static com.codurance.lightaccess.executables.Throwables.executeQuery;
+import static com.codurance.lightaccess.executables.Throwables.execute;
 
-public class LAResultSet {
-    private final SimpleDateFormat YYYY_MM_DD_date_format = new SimpleDateFormat("yyyy-MM-dd");
+public class LAResultSet implements AutoCloseable {
     private ResultSet resultSet;
+    private AutoCloseable statement;
+    private String sql;
+    private LightAccessListener listener;
+    private ColumnLabelCache columnLabelCache;
+    private ColumnLabels columnLabels;
 
     public LAResultSet(ResultSet resultSet) {
+        this(resultSet, null);
+    }
+
+    /**
+     * @param resultSet JDBC result set.
+     * @param statement closed, or released for reuse, after the result set is
+     *                  closed. When null, the result set's own statement is closed.
+     */
+    public LAResultSet(ResultSet resultSet, AutoCloseable statement) {
+        this(resultSet, statement, null, LightAccessListener.NONE);
+    }
+
+    /**
+     * @param resultSet JDBC result set.
+     * @param statement closed, or released for reuse, after the result set is closed.
+     * @param sql SQL of the statement, reported to the listener.
+     * @param listener notified of the rows mapped and of the time spent mapping them.
+     * @see #LAResultSet(ResultSet, AutoCloseable)
+     */
+    public LAResultSet(ResultSet resultSet, AutoCloseable statement, String sql, LightAccessListener listener) {
+        this(resultSet, statement, sql, listener, null);
+    }
+
+    /**
+     * @param resultSet JDBC result set.
+     * @param statement closed, or released for reuse, after the result set is closed.
+     * @param sql SQL of the statement, reported to the listener and whose column labels are cached.
+     * @param listener notified of the rows mapped and of the time spent mapping them.
+     * @param columnLabelCache column labels of the statements, or null to resolve them for this result only.
+     * @see #LAResultSet(ResultSet, AutoCloseable, String, LightAccessListener)
+     */
+    public LAResultSet(ResultSet resultSet, AutoCloseable statement, String sql, LightAccessListener listener,
+                       ColumnLabelCache columnLabelCache) {
         this.resultSet = resultSet;
+        this.statement = statement;
+        this.sql = sql;
+        this.listener = listener;
+        this.columnLabelCache = columnLabelCache;
     }
 
     public int getInt(int columnIndex) {
-        return executeQuery(() -> resultSet.getInt(columnIndex));
+        try {
+            return resultSet.getInt(columnIndex);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public long getLong(int columnIndex) {
+        try {
+            return resultSet.getLong(columnIndex);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public double getDouble(int columnIndex) {
+        try {
+            return resultSet.getDouble(columnIndex);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public boolean getBoolean(int columnIndex) {
+        try {
+            return resultSet.getBoolean(columnIndex);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public BigDecimal getBigDecimal(int columnIndex) {
+        try {
+            return resultSet.getBigDecimal(columnIndex);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public byte[] getBytes(int columnIndex) {
+        try {
+            return resultSet.getBytes(columnIndex);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Tells whether the last column read was null, in which case primitive
+     * getters such as {@link #getInt(int)} return 0 or false. Checking it
+     * avoids boxing the values of nullable numeric columns.
+     *
+     * @return
+     */
+    public boolean wasNull() {
+        try {
+            return resultSet.wasNull();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public OptionalInt getOptionalInt(int columnIndex) {
+        int value = getInt(columnIndex);
+        return wasNull() ? OptionalInt.empty() : OptionalInt.of(value);
+    }
+
+    public OptionalLong getOptionalLong(int columnIndex) {
+        long value = getLong(columnIndex);
+        return wasNull() ? OptionalLong.empty() : OptionalLong.of(value);
     }
 
     public String getString(int columnIndex) {
-        String stringValue = executeQuery(() -> resultSet.getString(columnIndex));
+        String stringValue = getNullableString(columnIndex);
         return (stringValue != null) ? stringValue : "";
     }
 
     public Optional<String> getOptionalString(int columnIndex) {
-        return Optional.ofNullable(executeQuery(() -> resultSet.getString(columnIndex)));
+        return Optional.ofNullable(getNullableString(columnIndex));
     }
 
     public LocalDate getLocalDate(int columnIndex) {
-        return utilDateToLocalDate(getDate(columnIndex));
+        try {
+            java.sql.Date date = resultSet.getDate(columnIndex);
+            return (date != null) ? date.toLocalDate() : null;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public LocalDateTime getLocalDateTime(int columnIndex) {
+        Timestamp timestamp = getTimestamp(columnIndex);
+        return (timestamp != null) ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * @param columnIndex index of a timestamp column, read in the JVM's default time zone.
+     * @return
+     */
+    public Instant getInstant(int columnIndex) {
+        Timestamp timestamp = getTimestamp(columnIndex);
+        return (timestamp != null) ? timestamp.toInstant() : null;
+    }
+
+    /**
+     * @param columnIndex index of a timestamp with time zone column.
+     * @return
+     */
+    public OffsetDateTime getOffsetDateTime(int columnIndex) {
+        try {
+            return resultSet.getObject(columnIndex, OffsetDateTime.class);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public Date getDate(int columnIndex) {
-        return executeQuery(() -> sqlDateToUtilDate(columnIndex));
+        try {
+            return sqlDateToUtilDate(columnIndex);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public Optional<LocalDate> getOptionalLocalDate(int columnIndex) {
         return Optional.ofNullable(getLocalDate(columnIndex));
     }
 
+    /**
+     * Labels are case-insensitive. They are resolved to column indexes once
+     * per SQL statement, instead of by the driver for every column read.
+     *
+     * @param columnLabel label of the column, i.e. its alias or name.
+     * @return
+     */
+    public int getInt(String columnLabel) {
+        return getInt(indexOf(columnLabel));
+    }
+
+    public long getLong(String columnLabel) {
+        return getLong(indexOf(columnLabel));
+    }
+
+    public double getDouble(String columnLabel) {
+        return getDouble(indexOf(columnLabel));
+    }
+
+    public boolean getBoolean(String columnLabel) {
+        return getBoolean(indexOf(columnLabel));
+    }
+
+    public BigDecimal getBigDecimal(String columnLabel) {
+        return getBigDecimal(indexOf(columnLabel));
+    }
+
+    public byte[] getBytes(String columnLabel) {
+        return getBytes(indexOf(columnLabel));
+    }
+
+    public OptionalInt getOptionalInt(String columnLabel) {
+        return getOptionalInt(indexOf(columnLabel));
+    }
+
+    public OptionalLong getOptionalLong(String columnLabel) {
+        return getOptionalLong(indexOf(columnLabel));
+    }
+
+    public String getString(String columnLabel) {
+        return getString(indexOf(columnLabel));
+    }
+
+    public Optional<String> getOptionalString(String columnLabel) {
+        return getOptionalString(indexOf(columnLabel));
+    }
+
+    public LocalDate getLocalDate(String columnLabel) {
+        return getLocalDate(indexOf(columnLabel));
+    }
+
+    public LocalDateTime getLocalDateTime(String columnLabel) {
+        return getLocalDateTime(indexOf(columnLabel));
+    }
+
+    public Instant getInstant(String columnLabel) {
+        return getInstant(indexOf(columnLabel));
+    }
+
+    public OffsetDateTime getOffsetDateTime(String columnLabel) {
+        return getOffsetDateTime(indexOf(columnLabel));
+    }
+
+    public Date getDate(String columnLabel) {
+        return getDate(indexOf(columnLabel));
+    }
+
+    public Optional<LocalDate> getOptionalLocalDate(String columnLabel) {
+        return getOptionalLocalDate(indexOf(columnLabel));
+    }
+
     public <T> Optional<T> onlyResult(Function<LAResultSet, T> mapOne) throws SQLException {
-        if (resultSet.next()) {
-            return Optional.of(mapOne.apply(this));
+        long start = System.nanoTime();
+        try (LAResultSet ignored = this) {
+            Optional<T> result = resultSet.next() ? Optional.of(mapOne.apply(this)) : Optional.empty();
+            listener.rowsMapped(sql, result.isPresent() ? 1 : 0, System.nanoTime() - start);
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            listener.failed(sql, e);
+            throw e;
+        } catch (Exception e) {
+            listener.failed(sql, e);
+            throw new RuntimeException(e);
         }
-        return Optional.empty();
     }
 
     public <T> List<T> mapResults(Function<LAResultSet, T> mapResults) {
-        List<T> list = new ArrayList<>();
-        while (this.next()) {
-            list.add(mapResults.apply(this));
-        }
-        return list;
+        return closeAfter(() -> {
+            long start = System.nanoTime();
+            List<T> list = new ArrayList<>();
+            while (this.next()) {
+                list.add(mapResults.apply(this));
+            }
+            listener.rowsMapped(sql, list.size(), System.nanoTime() - start);
+            return list;
+        });
+    }
+
+    /**
+     * Maps the records lazily, as the stream is consumed, so that only the
+     * records being processed are held in memory. The stream must be closed
+     * after use, which also closes this result set and its statement.
+     *
+     * @param mapResult maps the current record.
+     * @return
+     */
+    public <T> Stream<T> stream(Function<LAResultSet, T> mapResult) {
+        Records<T> records = new Records<>(mapResult);
+        return StreamSupport.stream(records, false).onClose(() -> {
+            listener.rowsMapped(sql, records.rows, records.mappingNanos);
+            execute(this::close);
+        });
     }
 
     public <K, V> OneToMany<K, V> normaliseOneToMany(Function<LAResultSet, KeyValue<K, Optional<V>>> normalise) {
-        OneToMany<K, V> oneToMany = new OneToMany<>();
-        while (this.next()) {
-            KeyValue<K, Optional<V>> kv = normalise.apply(this);
-            oneToMany.put(kv);
-        }
-        return oneToMany;
+        return closeAfter(() -> {
+            long start = System.nanoTime();
+            int rows = 0;
+            OneToMany<K, V> oneToMany = new OneToMany<>();
+            while (this.next()) {
+                KeyValue<K, Optional<V>> kv = normalise.apply(this);
+                oneToMany.put(kv);
+                rows++;
+            }
+            listener.rowsMapped(sql, rows, System.nanoTime() - start);
+            return oneToMany;
+        });
+    }
+
+    /**
+     * Normalises the results of a one to many join, mapping each parent only
+     * the first time its key is read, and each child only when the record has
+     * one. Parents are grouped by their key, so parents with different keys
+     * keep their own children even when they are equal.
+     *
+     * @param key reads the key of the parent.
+     * @param parent maps the parent, once per key.
+     * @param childKey reads the key of the child, which is null or empty when there is no child, e.g. in a left join.
+     * @param child maps the child.
+     * @return
+     */
+    public <K, P, V> KeyedOneToMany<K, P, V> normaliseOneToMany(Function<LAResultSet, K> key,
+                                                                Function<LAResultSet, P> parent,
+                                                                Function<LAResultSet, ?> childKey,
+                                                                Function<LAResultSet, V> child) {
+        return closeAfter(() -> {
+            long start = System.nanoTime();
+            int rows = 0;
+            KeyedOneToMany<K, P, V> oneToMany = new KeyedOneToMany<>();
+            while (this.next()) {
+                List<V> children = oneToMany.valuesOf(key.apply(this), () -> parent.apply(this));
+                if (!Hierarchy.isEmptyKey(childKey.apply(this))) {
+                    children.add(child.apply(this));
+                }
+                rows++;
+            }
+            listener.rowsMapped(sql, rows, System.nanoTime() - start);
+            return oneToMany;
+        });
+    }
+
+    /**
+     * Normalises the results of a one to many join whose parents are
+     * identified by an int key, without boxing the keys. Only the keys and
+     * the children are kept, so parents are looked up by key when collected.
+     *
+     * @param key reads the key of the parent.
+     * @param child maps the child, or returns null when the record has none, e.g. in a left join.
+     * @return
+     */
+    public <V> IntOneToMany<V> normaliseIntOneToMany(ToIntFunction<LAResultSet> key, Function<LAResultSet, V> child) {
+        return closeAfter(() -> {
+            long start = System.nanoTime();
+            int rows = 0;
+            IntOneToMany<V> oneToMany = new IntOneToMany<>();
+            while (this.next()) {
+                oneToMany.put(key.applyAsInt(this), Optional.ofNullable(child.apply(this)));
+                rows++;
+            }
+            listener.rowsMapped(sql, rows, System.nanoTime() - start);
+            return oneToMany;
+        });
+    }
+
+    /**
+     * Normalises the results of a one to many join whose parents are
+     * identified by a long key, without boxing the keys.
+     *
+     * @param key reads the key of the parent.
+     * @param child maps the child, or returns null when the record has none, e.g. in a left join.
+     * @return
+     * @see #normaliseIntOneToMany(ToIntFunction, Function)
+     */
+    public <V> LongOneToMany<V> normaliseLongOneToMany(ToLongFunction<LAResultSet> key, Function<LAResultSet, V> child) {
+        return closeAfter(() -> {
+            long start = System.nanoTime();
+            int rows = 0;
+            LongOneToMany<V> oneToMany = new LongOneToMany<>();
+            while (this.next()) {
+                oneToMany.put(key.applyAsLong(this), Optional.ofNullable(child.apply(this)));
+                rows++;
+            }
+            listener.rowsMapped(sql, rows, System.nanoTime() - start);
+            return oneToMany;
+        });
+    }
+
+    /**
+     * Normalises the results of a query ordered by the parent key, emitting
+     * each parent with its children as soon as the next parent is read. Only
+     * one group is held in memory at a time and parents are emitted in the
+     * order of the query.
+     *
+     * @param normalise maps the current record to the parent key and its child, if any.
+     * @param group receives each parent key with its children.
+     */
+    public <K, V> void normaliseOrderedOneToMany(Function<LAResultSet, KeyValue<K, Optional<V>>> normalise,
+                                                 BiConsumer<K, List<V>> group) {
+        closeAfter(() -> {
+            long start = System.nanoTime();
+            int rows = 0;
+            K currentKey = null;
+            List<V> children = null;
+            while (this.next()) {
+                KeyValue<K, Optional<V>> kv = normalise.apply(this);
+                if (children == null || !Objects.equals(currentKey, kv.getKey())) {
+                    if (children != null) {
+                        group.accept(currentKey, children);
+                    }
+                    currentKey = kv.getKey();
+                    children = new ArrayList<>();
+                }
+                kv.getValue().ifPresent(children::add);
+                rows++;
+            }
+            if (children != null) {
+                group.accept(currentKey, children);
+            }
+            listener.rowsMapped(sql, rows, System.nanoTime() - start);
+            return null;
+        });
+    }
+
+    /**
+     * Normalises the results of a join of several levels of one to many
+     * relationships in a single pass.
+     *
+     * @param hierarchy levels of the join, from the top one.
+     * @return top level of the hierarchy, in the order its keys were read.
+     */
+    public <T> List<T> normaliseHierarchy(Hierarchy<T> hierarchy) {
+        return closeAfter(() -> {
+            long start = System.nanoTime();
+            int rows = 0;
+            Map<Object, Hierarchy.Node> nodes = new LinkedHashMap<>();
+            while (this.next()) {
+                hierarchy.add(this, nodes);
+                rows++;
+            }
+            List<T> assembled = hierarchy.assemble(nodes);
+            listener.rowsMapped(sql, rows, System.nanoTime() - start);
+            return assembled;
+        });
+    }
+
+    /**
+     * Loads the results column by column into primitive arrays, which take
+     * less memory than objects per record and are faster to scan when only
+     * a few columns are aggregated.
+     *
+     * @return
+     */
+    public ColumnarResult toColumnar() {
+        return closeAfter(() -> {
+            long start = System.nanoTime();
+            ColumnarResult columnar = ColumnarResult.from(resultSet);
+            listener.rowsMapped(sql, columnar.size(), System.nanoTime() - start);
+            return columnar;
+        });
     }
 
     public LAResultSet nextRecord() {
@@ -71,8 +487,85 @@ public class LAResultSet {
         return this;
     }
 
+    /**
+     * Closes the result set and the statement that created it. Results are
+     * closed automatically once mapped by {@link #onlyResult(Function)},
+     * {@link #mapResults(Function)} or {@link #normaliseOneToMany(Function)}.
+     *
+     * @throws Exception
+     */
+    @Override
+    public void close() throws Exception {
+        AutoCloseable statement = (this.statement != null) ? this.statement : resultSet.getStatement();
+        resultSet.close();
+        if (statement != null) {
+            statement.close();
+        }
+    }
+
+    private <T> T closeAfter(Throwables.Query<T> mapping) {
+        try (LAResultSet ignored = this) {
+            return mapping.call();
+        } catch (RuntimeException e) {
+            listener.failed(sql, e);
+            throw e;
+        } catch (Exception e) {
+            listener.failed(sql, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private class Records<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Function<LAResultSet, T> mapResult;
+        private int rows = 0;
+        private long mappingNanos = 0;
+
+        Records(Function<LAResultSet, T> mapResult) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.mapResult = mapResult;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            long start = System.nanoTime();
+            if (!next()) {
+                return false;
+            }
+            T record = mapResult.apply(LAResultSet.this);
+            mappingNanos += System.nanoTime() - start;
+            rows++;
+            action.accept(record);
+            return true;
+        }
+    }
+
     private boolean next() {
-        return executeQuery(() -> resultSet.next());
+        try {
+            return resultSet.next();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private int indexOf(String columnLabel) {
+        if (columnLabels == null) {
+            try {
+                columnLabels = (columnLabelCache != null && sql != null)
+                               ? columnLabelCache.labelsOf(sql, resultSet)
+                               : ColumnLabels.of(resultSet);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return columnLabels.indexOf(columnLabel);
+    }
+
+    private String getNullableString(int columnIndex) {
+        try {
+            return resultSet.getString(columnIndex);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private Date sqlDateToUtilDate(int columnIndex) throws SQLException {
@@ -80,8 +573,12 @@ public class LAResultSet {
         return (date != null) ? new Date(date.getTime()) : null;
     }
 
-    private LocalDate utilDateToLocalDate(Date date) {
-        return (date != null) ? LocalDate.parse(YYYY_MM_DD_date_format.format(date)) : null;
+    private Timestamp getTimestamp(int columnIndex) {
+        try {
+            return resultSet.getTimestamp(columnIndex);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
     }
 
 }
@@ -7,7 +7,7 @@ import static org.apache.commons.lang3.builder.EqualsBuilder.reflectionEquals;
 
 public class OneToMany<K, V> {
 
-    private Map<K, List<V>> data = new HashMap<>();
+    private Map<K, List<V>> data = new LinkedHashMap<>();
 
     public void put(KeyValue<K, Optional<V>> keyValue) {
         if (keyValue.getValue().isPresent()) {
@@ -18,9 +18,14 @@ public class OneToMany<K, V> {
     }
 
     public void put(K key, Optional<V> value) {
-        List<V> children = data.getOrDefault(key, new ArrayList<>());
-        value.ifPresent(children::add);
-        data.put(key, children);
+        List<V> children = valuesOf(key);
+        if (value.isPresent()) {
+            children.add(value.get());
+        }
+    }
+
+    List<V> valuesOf(K key) {
+        return data.computeIfAbsent(key, k -> new ArrayList<>());
     }
 
     public <T> List<T> collect(BiFunction<K, List<V>, T> collect) {
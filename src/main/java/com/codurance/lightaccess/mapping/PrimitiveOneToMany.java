@@ -0,0 +1,92 @@
+package com.codurance.lightaccess.mapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Values of a {@link OneToMany} keyed by a primitive, in the order their
+ * keys were first put, found through an open addressing table of entry
+ * indexes. Keys are stored as longs, which hold int keys unchanged, so that
+ * the typed subclasses only convert them.
+ */
+abstract class PrimitiveOneToMany<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private List<V>[] values = newValues(INITIAL_CAPACITY);
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    final long keyAt(int entry) {
+        return keys[entry];
+    }
+
+    final List<V> valuesAt(int entry) {
+        return values[entry];
+    }
+
+    /**
+     * @return values of the key, added without any if the key was not put before.
+     */
+    final List<V> valuesOf(long key) {
+        int slot = firstSlot(key);
+        for (int entry = slots[slot] - 1; entry >= 0; entry = slots[slot] - 1) {
+            if (keys[entry] == key) {
+                return values[entry];
+            }
+            slot = nextSlot(slot);
+        }
+        if (size == keys.length) {
+            grow(size * 2);
+            return valuesOf(key);
+        }
+        keys[size] = key;
+        values[size] = new ArrayList<>();
+        slots[slot] = ++size;
+        return values[size - 1];
+    }
+
+    private void grow(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        slots = new int[capacity * 2];
+        for (int entry = 0; entry < size; entry++) {
+            int slot = firstSlot(keys[entry]);
+            while (slots[slot] != 0) {
+                slot = nextSlot(slot);
+            }
+            slots[slot] = entry + 1;
+        }
+    }
+
+    private int firstSlot(long key) {
+        int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (slots.length - 1);
+    }
+
+    private int nextSlot(int slot) {
+        return (slot + 1) & (slots.length - 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder data = new StringBuilder();
+        for (int entry = 0; entry < size; entry++) {
+            data.append((entry == 0) ? "" : ", ").append(keys[entry]).append('=').append(values[entry]);
+        }
+        return getClass().getSimpleName() + "{" +
+                "data={" + data + "}" +
+                '}';
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> List<V>[] newValues(int capacity) {
+        return (List<V>[]) new List<?>[capacity];
+    }
+}
@@ -0,0 +1,92 @@
+package com.codurance.lightaccess.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies with power of two buckets: bucket {@code i} counts
+ * the latencies between 2^(i-1) and 2^i - 1 nanoseconds. Recording a latency
+ * does not allocate.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long latency = Math.max(0, nanos);
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(latency));
+        count.increment();
+        totalNanos.add(latency);
+        if (latency > maxNanos.get()) {
+            maxNanos.accumulateAndGet(latency, Math::max);
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    public long meanNanos() {
+        long count = count();
+        return (count == 0) ? 0 : totalNanos() / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return upper bound of the bucket containing the percentile, capped by the maximum latency.
+     */
+    public long percentileNanos(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    /**
+     * @return number of latencies per bucket.
+     */
+    public long[] bucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = buckets.get(bucket);
+        }
+        return counts;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        return (bucket >= BUCKETS - 1) ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + count() +
+                ", meanNanos=" + meanNanos() +
+                ", p99Nanos=" + percentileNanos(99) +
+                ", maxNanos=" + maxNanos() +
+                '}';
+    }
+}
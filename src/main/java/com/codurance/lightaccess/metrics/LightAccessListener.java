@@ -0,0 +1,34 @@
+package com.codurance.lightaccess.metrics;
+
+/**
+ * Notified by LightAccess of the time spent acquiring connections,
+ * preparing and executing statements and mapping their results, and of
+ * errors. Statements are identified by their SQL, as given to
+ * {@code LAConnection.prepareStatement}.
+ *
+ * Methods are called on the thread executing the statement, in the hot
+ * path, so implementations must be fast and thread-safe.
+ */
+public interface LightAccessListener {
+
+    LightAccessListener NONE = new LightAccessListener() {};
+
+    default void connectionAcquired(long nanos) {
+    }
+
+    default void statementPrepared(String sql, long nanos) {
+    }
+
+    default void statementExecuted(String sql, long nanos) {
+    }
+
+    default void rowsMapped(String sql, int rows, long nanos) {
+    }
+
+    /**
+     * @param sql SQL of the failed statement, or null if no connection could be acquired.
+     * @param error cause of the failure.
+     */
+    default void failed(String sql, Exception error) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.codurance.lightaccess.metrics;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Normalised form of a SQL statement, used to group the metrics of
+ * statements differing only by literals or whitespace: string and numeric
+ * literals are replaced by {@code ?}, whitespace is collapsed and the text
+ * is lower-cased. The fingerprints of the most recently used statements
+ * are cached.
+ */
+public final class SqlFingerprint {
+
+    private static final int MAX_CACHED_FINGERPRINTS = 10_000;
+    private static final LinkedHashMap<String, String> FINGERPRINTS = new LinkedHashMap<>(16, 0.75f, true);
+
+    private SqlFingerprint() {
+    }
+
+    public static String of(String sql) {
+        synchronized (FINGERPRINTS) {
+            String fingerprint = FINGERPRINTS.get(sql);
+            if (fingerprint != null) {
+                return fingerprint;
+            }
+        }
+        String fingerprint = normalise(sql);
+        synchronized (FINGERPRINTS) {
+            FINGERPRINTS.put(sql, fingerprint);
+            evictLeastRecentlyUsed();
+        }
+        return fingerprint;
+    }
+
+    private static void evictLeastRecentlyUsed() {
+        if (FINGERPRINTS.size() > MAX_CACHED_FINGERPRINTS) {
+            Iterator<String> leastRecentlyUsed = FINGERPRINTS.keySet().iterator();
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    static String normalise(String sql) {
+        StringBuilder fingerprint = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipStringLiteral(sql, i);
+                fingerprint.append('?');
+            } else if (Character.isDigit(c) && !isPartOfIdentifier(fingerprint)) {
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                fingerprint.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (fingerprint.length() > 0 && i < sql.length()) {
+                    fingerprint.append(' ');
+                }
+            } else {
+                fingerprint.append(Character.toLowerCase(c));
+                i++;
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private static int skipStringLiteral(String sql, int openingQuote) {
+        int i = openingQuote + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isPartOfIdentifier(StringBuilder fingerprint) {
+        if (fingerprint.length() == 0) {
+            return false;
+        }
+        char previous = fingerprint.charAt(fingerprint.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_';
+    }
+}
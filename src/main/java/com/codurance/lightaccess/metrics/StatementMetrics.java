@@ -0,0 +1,109 @@
+package com.codurance.lightaccess.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener keeping latency histograms of connection acquisition and, per
+ * {@link SqlFingerprint}, of statement preparation, execution and result
+ * mapping, along with the number of rows mapped and errors.
+ */
+public class StatementMetrics implements LightAccessListener {
+
+    private final LatencyHistogram connectionAcquisition = new LatencyHistogram();
+    private final LongAdder connectionErrors = new LongAdder();
+    private final Map<String, Statement> statements = new ConcurrentHashMap<>();
+
+    @Override
+    public void connectionAcquired(long nanos) {
+        connectionAcquisition.record(nanos);
+    }
+
+    @Override
+    public void statementPrepared(String sql, long nanos) {
+        statement(sql).prepare.record(nanos);
+    }
+
+    @Override
+    public void statementExecuted(String sql, long nanos) {
+        statement(sql).execution.record(nanos);
+    }
+
+    @Override
+    public void rowsMapped(String sql, int rows, long nanos) {
+        Statement statement = statement(sql);
+        statement.mapping.record(nanos);
+        statement.rowsMapped.add(rows);
+    }
+
+    @Override
+    public void failed(String sql, Exception error) {
+        if (sql == null) {
+            connectionErrors.increment();
+        } else {
+            statement(sql).errors.increment();
+        }
+    }
+
+    public LatencyHistogram connectionAcquisition() {
+        return connectionAcquisition;
+    }
+
+    public long connectionErrors() {
+        return connectionErrors.sum();
+    }
+
+    /**
+     * @return metrics per SQL fingerprint.
+     */
+    public Map<String, Statement> statements() {
+        return Collections.unmodifiableMap(statements);
+    }
+
+    private Statement statement(String sql) {
+        String fingerprint = SqlFingerprint.of(sql);
+        Statement statement = statements.get(fingerprint);
+        return (statement != null) ? statement : statements.computeIfAbsent(fingerprint, f -> new Statement());
+    }
+
+    public static class Statement {
+        private final LatencyHistogram prepare = new LatencyHistogram();
+        private final LatencyHistogram execution = new LatencyHistogram();
+        private final LatencyHistogram mapping = new LatencyHistogram();
+        private final LongAdder rowsMapped = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        public LatencyHistogram prepare() {
+            return prepare;
+        }
+
+        public LatencyHistogram execution() {
+            return execution;
+        }
+
+        public LatencyHistogram mapping() {
+            return mapping;
+        }
+
+        public long rowsMapped() {
+            return rowsMapped.sum();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Statement{" +
+                    "prepare=" + prepare +
+                    ", execution=" + execution +
+                    ", mapping=" + mapping +
+                    ", rowsMapped=" + rowsMapped +
+                    ", errors=" + errors +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.codurance.lightaccess.pagination;
+
+import com.codurance.lightaccess.LightAccess;
+import com.codurance.lightaccess.connection.PreparedStatementBuilder;
+import com.codurance.lightaccess.executables.SQLQuery;
+import com.codurance.lightaccess.mapping.LAResultSet;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.lang.String.format;
+
+/**
+ * Reads the results of a query one page at a time, ordered by a key. Each
+ * page after the first one starts after the key of the last record of the
+ * previous page ({@code where key > ?}), so reading a page costs the same
+ * wherever it is, unlike skipping the previous records with {@code OFFSET}.
+ *
+ * The key must be unique, and is best indexed. Each page is read with its
+ * own connection. Pages are read lazily, as they are iterated, unless the
+ * next page is prefetched, in which case it is read asynchronously while
+ * the current one is processed.
+ */
+public class KeysetPaginator<T> implements Iterable<List<T>> {
+
+    private static final String FIRST_PAGE_SQL = "select * from (%s) keyset_page order by %s";
+    private static final String NEXT_PAGE_SQL = "select * from (%s) keyset_page where %s > ? order by %s";
+
+    private final LightAccess lightAccess;
+    private final String firstPageSql;
+    private final String nextPageSql;
+    private final Function<LAResultSet, T> mapRow;
+    private final Function<T, ?> key;
+    private final int pageSize;
+    private Consumer<PreparedStatementBuilder> bindParams = statement -> {};
+    private boolean prefetch = false;
+
+    /**
+     * @param lightAccess used to read the pages.
+     * @param sql query whose results are paginated, without ordering.
+     * @param keyColumn label of the column the results are ordered by.
+     * @param key key of a record, i.e. the value of its key column.
+     * @param mapRow maps the current record.
+     * @param pageSize maximum number of records per page.
+     */
+    public KeysetPaginator(LightAccess lightAccess, String sql, String keyColumn, Function<T, ?> key,
+                           Function<LAResultSet, T> mapRow, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.lightAccess = lightAccess;
+        this.firstPageSql = format(FIRST_PAGE_SQL, sql, keyColumn);
+        this.nextPageSql = format(NEXT_PAGE_SQL, sql, keyColumn, keyColumn);
+        this.mapRow = mapRow;
+        this.key = key;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @param bindParams binds the parameters of the query, before the key of the previous page.
+     * @return
+     */
+    public KeysetPaginator<T> withParams(Consumer<PreparedStatementBuilder> bindParams) {
+        this.bindParams = bindParams;
+        return this;
+    }
+
+    /**
+     * Reads the next page with the asynchronous executor of
+     * {@link LightAccess} as soon as the current one is returned. Closing
+     * the stream of {@link #pages()} or {@link #records()} cancels the read
+     * of the next page if it has not started yet, while a read already
+     * started completes and releases its connection. An abandoned
+     * {@link #iterator()} leaves the next page to be read.
+     *
+     * @return
+     */
+    public KeysetPaginator<T> withPrefetch() {
+        this.prefetch = true;
+        return this;
+    }
+
+    @Override
+    public Iterator<List<T>> iterator() {
+        return new Pages();
+    }
+
+    /**
+     * @return pages, to be closed when not read to the end with prefetching.
+     */
+    public Stream<List<T>> pages() {
+        Pages pages = new Pages();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                            .onClose(pages::cancelNextPage);
+    }
+
+    /**
+     * @return records of the pages, to be closed when not read to the end with prefetching.
+     */
+
+    public Stream<T> records() {
+        return pages().flatMap(List::stream);
+    }
+
+    private SQLQuery<List<T>> page(Object lastKey) {
+        return conn -> {
+            PreparedStatementBuilder statement = conn.prepareStatement((lastKey == null) ? firstPageSql : nextPageSql);
+            bindParams.accept(statement);
+            if (lastKey != null) {
+                statement.withObjectParam(lastKey);
+            }
+            return statement.withMaxRows(pageSize)
+                            .withFetchSize(pageSize)
+                            .executeQuery()
+                            .mapResults(mapRow);
+        };
+    }
+
+    private class Pages implements Iterator<List<T>> {
+        private Object lastKey = null;
+        private boolean lastPage = false;
+        private List<T> page;
+        private CompletableFuture<List<T>> nextPage;
+
+        @Override
+        public boolean hasNext() {
+            if (page == null && !lastPage) {
+                page = (nextPage != null) ? join(nextPage) : lightAccess.executeQuery(page(lastKey));
+                nextPage = null;
+                if (page.isEmpty()) {
+                    page = null;
+                    lastPage = true;
+                }
+            }
+            return page != null;
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<T> current = page;
+            page = null;
+            if (current.size() < pageSize) {
+                lastPage = true;
+            } else {
+                lastKey = key.apply(current.get(current.size() - 1));
+                if (lastKey == null) {
+                    throw new IllegalStateException("Null key in the last record of the page");
+                }
+                if (prefetch) {
+                    nextPage = lightAccess.executeQueryAsync(page(lastKey));
+                }
+            }
+            return current;
+        }
+
+        void cancelNextPage() {
+            if (nextPage != null) {
+                nextPage.cancel(false);
+                nextPage = null;
+            }
+        }
+
+        private List<T> join(CompletableFuture<List<T>> page) {
+            try {
+                return page.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.codurance.lightaccess.partitions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Range of numeric keys, from {@code from} inclusive to {@code to}
+ * exclusive, e.g. to query {@code where id >= ? and id < ?}.
+ */
+public class KeyRange {
+
+    private final long from;
+    private final long to;
+
+    private KeyRange(long from, long to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @param from first key of the range.
+     * @param to key following the last key of the range.
+     * @return
+     */
+    public static KeyRange of(long from, long to) {
+        if (to < from) {
+            throw new IllegalArgumentException("Key range ends before it starts: [" + from + ", " + to + ")");
+        }
+        return new KeyRange(from, to);
+    }
+
+    public long from() {
+        return from;
+    }
+
+    public long to() {
+        return to;
+    }
+
+    public long size() {
+        return Math.subtractExact(to, from);
+    }
+
+    /**
+     * Splits the range into contiguous sub-ranges of (almost) the same size,
+     * in order. There are fewer sub-ranges than requested when the range
+     * has fewer keys, so that none of them is empty.
+     *
+     * @param partitions number of sub-ranges.
+     * @return
+     */
+    public List<KeyRange> split(int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive: " + partitions);
+        }
+        long size = size();
+        int count = (int) Math.max(1, Math.min(partitions, size));
+        long partitionSize = size / count;
+        long remainder = size % count;
+        List<KeyRange> ranges = new ArrayList<>(count);
+        long start = from;
+        for (int i = 0; i < count; i++) {
+            long end = start + partitionSize + ((i < remainder) ? 1 : 0);
+            ranges.add(new KeyRange(start, end));
+            start = end;
+        }
+        return ranges;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof KeyRange)) {
+            return false;
+        }
+        KeyRange range = (KeyRange) other;
+        return from == range.from && to == range.to;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(from) + Long.hashCode(to);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + to + ")";
+    }
+}
@@ -0,0 +1,110 @@
+package com.codurance.lightaccess.partitions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Results of a query executed concurrently for each partition of a key
+ * range, merged either in the order of the partitions or as they complete.
+ * When merged as they complete, the partitions already completed come
+ * first, in the order of the partitions. The first partition failing makes
+ * the whole result fail.
+ */
+public class PartitionedResults<T> {
+
+    private final List<CompletableFuture<List<T>>> partitions;
+
+    /**
+     * @param partitions results of each partition, in the order of the partitions.
+     */
+    public PartitionedResults(List<CompletableFuture<List<T>>> partitions) {
+        this.partitions = partitions;
+    }
+
+    /**
+     * @return results of all partitions, in the order of the partitions.
+     */
+    public List<T> toList() {
+        List<T> results = new ArrayList<>();
+        partitions.forEach(partition -> results.addAll(join(partition)));
+        return results;
+    }
+
+    /**
+     * @return results of all partitions, in the order the partitions completed.
+     */
+    public List<T> toListInCompletionOrder() {
+        List<T> results = new ArrayList<>();
+        inCompletionOrder().forEachRemaining(results::addAll);
+        return results;
+    }
+
+    /**
+     * @return results in the order of the partitions, each partition being
+     *         waited for once the previous ones have been consumed.
+     */
+    public Stream<T> stream() {
+        return partitions.stream().flatMap(partition -> join(partition).stream());
+    }
+
+    /**
+     * @return results in the order the partitions complete, each partition
+     *         being consumed as soon as it completes.
+     */
+    public Stream<T> streamInCompletionOrder() {
+        return StreamSupport.stream(Spliterators.spliterator(inCompletionOrder(), partitions.size(), Spliterator.ORDERED), false)
+                            .flatMap(List::stream);
+    }
+
+    private Iterator<List<T>> inCompletionOrder() {
+        BlockingQueue<CompletableFuture<List<T>>> completed = new LinkedBlockingQueue<>();
+        partitions.forEach(partition -> partition.whenComplete((result, error) -> completed.add(partition)));
+        return new Iterator<List<T>>() {
+            private int taken = 0;
+
+            @Override
+            public boolean hasNext() {
+                return taken < partitions.size();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                taken++;
+                return join(take(completed));
+            }
+        };
+    }
+
+    private CompletableFuture<List<T>> take(BlockingQueue<CompletableFuture<List<T>>> completed) {
+        try {
+            return completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<T> join(CompletableFuture<List<T>> partition) {
+        try {
+            return partition.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
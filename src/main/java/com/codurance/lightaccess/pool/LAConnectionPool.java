@@ -0,0 +1,574 @@
+package com.codurance.lightaccess.pool;
+
+import com.codurance.lightaccess.connection.StatementCache;
+import com.codurance.lightaccess.connection.StatementCacheStats;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Small connection pool tuned for the short checkout/return pattern of
+ * {@link com.codurance.lightaccess.LightAccess}, where every query and
+ * command borrows a connection and returns it straight away.
+ *
+ * Connections are borrowed without locking: a thread first tries the last
+ * connection it returned, then any idle connection, then opens a new one if
+ * the pool is not full. Otherwise it waits for a connection to be handed
+ * over by the next thread returning one.
+ *
+ * Connections idle for longer than the validation interval are validated
+ * before being handed out. Connections older than the maximum lifetime are
+ * closed when returned, and connections idle for longer than the idle timeout
+ * are closed in the background.
+ *
+ * Prepared statements can be cached per connection, for as long as the
+ * connection stays in the pool, and are then reused across the queries and
+ * commands of {@link com.codurance.lightaccess.LightAccess}.
+ */
+public class LAConnectionPool implements DataSource, AutoCloseable {
+
+    private static final int HANDOFF_SPINS_BEFORE_PARKING = 0xff;
+
+    private final ConnectionFactory connectionFactory;
+    private final List<PooledConnection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final SynchronousQueue<PooledConnection> handoff = new SynchronousQueue<>(true);
+    private final ThreadLocal<PooledConnection> lastReturned = new ThreadLocal<>();
+    private final PoolStats stats = new PoolStats();
+    private final StatementCacheStats statementCacheStats = new StatementCacheStats();
+    private final AtomicBoolean housekeeperStarted = new AtomicBoolean();
+    private volatile ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private int maxSize = 10;
+    private int minIdle = 0;
+    private long acquireTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+    private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+    private long maxLifetimeNanos = TimeUnit.MINUTES.toNanos(30);
+    private long validationIntervalNanos = MILLISECONDS.toNanos(500);
+    private int validationTimeoutSeconds = 5;
+    private int statementCacheSize = 0;
+
+    private PrintWriter logWriter;
+    private int loginTimeout;
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection newConnection() throws SQLException;
+    }
+
+    public LAConnectionPool(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Pools the connections opened by a non-pooled data source.
+     *
+     * @param dataSource data source opening physical connections.
+     */
+    public LAConnectionPool(DataSource dataSource) {
+        this(dataSource::getConnection);
+    }
+
+    public static LAConnectionPool create(String url, String user, String password) {
+        return new LAConnectionPool(() -> DriverManager.getConnection(url, user, password));
+    }
+
+    public LAConnectionPool withMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Number of idle connections kept open by the background housekeeping,
+     * regardless of the idle timeout.
+     */
+    public LAConnectionPool withMinIdle(int minIdle) {
+        if (minIdle < 0) {
+            throw new IllegalArgumentException("Min idle must not be negative: " + minIdle);
+        }
+        this.minIdle = minIdle;
+        return this;
+    }
+
+    /**
+     * Maximum time {@link #getConnection()} waits for a connection when
+     * the pool is full.
+     */
+    public LAConnectionPool withAcquireTimeout(Duration acquireTimeout) {
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        return this;
+    }
+
+    public LAConnectionPool withIdleTimeout(Duration idleTimeout) {
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        return this;
+    }
+
+    public LAConnectionPool withMaxLifetime(Duration maxLifetime) {
+        this.maxLifetimeNanos = maxLifetime.toNanos();
+        return this;
+    }
+
+    /**
+     * Connections idle for longer than the interval are validated with
+     * {@link Connection#isValid(int)} before being handed out. Connections
+     * returned and borrowed again within the interval are not validated.
+     */
+    public LAConnectionPool withValidation(Duration validationInterval, int validationTimeoutSeconds) {
+        this.validationIntervalNanos = validationInterval.toNanos();
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        return this;
+    }
+
+    /**
+     * Caches up to {@code size} prepared statements per connection, closed
+     * when the connection is closed by the pool. The cache is used by the
+     * {@link com.codurance.lightaccess.connection.LAConnection}s wrapping
+     * connections of the pool, instead of their own one.
+     */
+    public LAConnectionPool withStatementCache(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Statement cache size must not be negative: " + size);
+        }
+        this.statementCacheSize = size;
+        return this;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        PooledConnection pooled = borrow(start);
+        stats.acquired(System.nanoTime() - start);
+        return handleFor(pooled);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections are opened with the credentials the pool was created with");
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public PoolStats stats() {
+        return stats;
+    }
+
+    public StatementCacheStats statementCacheStats() {
+        return statementCacheStats;
+    }
+
+    public int totalConnections() {
+        return connections.size();
+    }
+
+    public int idleConnections() {
+        return (int) connections.stream().filter(PooledConnection::isIdle).count();
+    }
+
+    public int activeConnections() {
+        return (int) connections.stream().filter(PooledConnection::isInUse).count();
+    }
+
+    /**
+     * Closes the idle connections. Connections in use are closed when returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        for (PooledConnection pooled : connections) {
+            if (pooled.reserve()) {
+                retire(pooled);
+            }
+        }
+    }
+
+    private PooledConnection borrow(long start) throws SQLException {
+        ensureOpen();
+        PooledConnection pooled = reserveLastReturned();
+        if (pooled == null) {
+            pooled = reserveIdle();
+        }
+        if (pooled == null) {
+            pooled = createIfNotFull();
+        }
+        return (pooled != null) ? pooled : awaitConnection(start + acquireTimeoutNanos);
+    }
+
+    private PooledConnection awaitConnection(long deadline) throws SQLException {
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                PooledConnection pooled = reserveIdle();
+                if (pooled == null) {
+                    pooled = createIfNotFull();
+                }
+                if (pooled != null) {
+                    return pooled;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    stats.timedOut();
+                    throw new SQLTransientConnectionException("Timed out waiting for a connection, all " + maxSize + " connections are in use");
+                }
+                PooledConnection handedOver = handoff.poll(Math.min(remaining, MILLISECONDS.toNanos(100)), NANOSECONDS);
+                if (handedOver != null && handedOver.reserve() && isUsable(handedOver)) {
+                    return handedOver;
+                }
+                ensureOpen();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private PooledConnection reserveLastReturned() {
+        PooledConnection pooled = lastReturned.get();
+        if (pooled != null && pooled.reserve() && isUsable(pooled)) {
+            return pooled;
+        }
+        return null;
+    }
+
+    private PooledConnection reserveIdle() {
+        for (PooledConnection pooled : connections) {
+            if (pooled.reserve() && isUsable(pooled)) {
+                return pooled;
+            }
+        }
+        return null;
+    }
+
+    private PooledConnection createIfNotFull() throws SQLException {
+        int current;
+        do {
+            current = size.get();
+            if (current >= maxSize) {
+                return null;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+
+        try {
+            PooledConnection pooled = pooled(connectionFactory.newConnection());
+            connections.add(pooled);
+            stats.created();
+            startHousekeeping();
+            return pooled;
+        } catch (SQLException | RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private PooledConnection pooled(Connection connection) throws SQLException {
+        try {
+            StatementCache statementCache = new StatementCache(connection, statementCacheSize, statementCacheStats);
+            return new PooledConnection(connection, statementCache, System.nanoTime());
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Must be called with the connection reserved. Retires the connection
+     * if it has expired or is no longer valid.
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.nanoTime();
+        if (pooled.ageAt(now) >= maxLifetimeNanos) {
+            retire(pooled);
+            return false;
+        }
+        if (pooled.idleTimeAt(now) >= validationIntervalNanos && !isValid(pooled)) {
+            retire(pooled);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.connection().isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        long now = System.nanoTime();
+        if (closed || pooled.isBroken() || pooled.ageAt(now) >= maxLifetimeNanos || !reset(pooled)) {
+            retire(pooled);
+            return;
+        }
+        pooled.makeIdle(now);
+        if (retiredOnClose(pooled)) {
+            return;
+        }
+        lastReturned.set(pooled);
+        handOverToWaiter(pooled);
+    }
+
+    /**
+     * Must be called once the connection has become idle. Retires it if the
+     * pool has been closed meanwhile, as {@link #close()} may have swept the
+     * idle connections before this one became idle.
+     *
+     * @return whether the pool has been closed.
+     */
+    private boolean retiredOnClose(PooledConnection pooled) {
+        if (!closed) {
+            return false;
+        }
+        if (pooled.reserve()) {
+            retire(pooled);
+        }
+        return true;
+    }
+
+    private boolean reset(PooledConnection pooled) {
+        try {
+            Connection connection = pooled.connection();
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            pooled.restoreSettings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void handOverToWaiter(PooledConnection pooled) {
+        for (int spins = 0; waiters.get() > 0 && pooled.isIdle(); spins++) {
+            if (handoff.offer(pooled)) {
+                return;
+            }
+            if ((spins & HANDOFF_SPINS_BEFORE_PARKING) == HANDOFF_SPINS_BEFORE_PARKING) {
+                LockSupport.parkNanos(10_000);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void retire(PooledConnection pooled) {
+        if (!pooled.markRemoved()) {
+            return;
+        }
+        connections.remove(pooled);
+        size.decrementAndGet();
+        stats.retired();
+        try {
+            pooled.statementCache().close();
+        } catch (SQLException e) {
+            // the statements are closed with the connection anyway
+        }
+        try {
+            pooled.connection().close();
+        } catch (SQLException e) {
+            // the connection is discarded anyway
+        }
+    }
+
+    private void startHousekeeping() {
+        if (!housekeeperStarted.compareAndSet(false, true)) {
+            return;
+        }
+        long period = Math.max(MILLISECONDS.toNanos(100), Math.min(idleTimeoutNanos / 2, TimeUnit.SECONDS.toNanos(30)));
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "light-access-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, NANOSECONDS);
+    }
+
+    private void houseKeep() {
+        long now = System.nanoTime();
+        for (PooledConnection pooled : connections) {
+            if (!pooled.reserve()) {
+                continue;
+            }
+            boolean expired = pooled.ageAt(now) >= maxLifetimeNanos;
+            boolean idleTooLong = pooled.idleTimeAt(now) >= idleTimeoutNanos && idleConnections() >= minIdle;
+            if (expired || idleTooLong) {
+                retire(pooled);
+            } else {
+                pooled.unreserve();
+                if (retiredOnClose(pooled)) {
+                    return;
+                }
+                handOverToWaiter(pooled);
+            }
+        }
+        fillMinIdle();
+    }
+
+    private void fillMinIdle() {
+        try {
+            while (!closed && idleConnections() < minIdle) {
+                PooledConnection pooled = createIfNotFull();
+                if (pooled == null) {
+                    return;
+                }
+                pooled.makeIdle(System.nanoTime());
+                if (retiredOnClose(pooled)) {
+                    return;
+                }
+                handOverToWaiter(pooled);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // retried on the next run
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLNonTransientConnectionException("Connection pool is closed");
+        }
+    }
+
+    private Connection handleFor(PooledConnection pooled) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                   new Class<?>[]{Connection.class},
+                                                   new ConnectionHandle(pooled));
+    }
+
+    /**
+     * Connection handed out by the pool. Closing it returns the connection
+     * to the pool. Connections failing with a connection error (SQL state
+     * class 08) are closed instead of returned. Returned connections are
+     * rolled back and their auto-commit mode, isolation level and read-only
+     * mode restored, or closed if that fails. The statement cache of the
+     * connection, if enabled, is unwrapped as a {@link StatementCache}.
+     */
+    private class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.connection().isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + pooled.connection();
+                default:
+                    if (closed) {
+                        throw new SQLNonTransientConnectionException("Connection is closed");
+                    }
+                    if (isStatementCacheUnwrapping(method, args)) {
+                        return method.getName().equals("unwrap") ? pooled.statementCache() : Boolean.TRUE;
+                    }
+                    if (method.getName().equals("setTransactionIsolation") || method.getName().equals("setReadOnly")) {
+                        pooled.markSettingsChanged();
+                    }
+                    return delegate(method, args);
+            }
+        }
+
+        private Object delegate(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(pooled.connection(), args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isConnectionError((SQLException) cause)) {
+                    pooled.markBroken();
+                }
+                throw cause;
+            }
+        }
+
+        private boolean isStatementCacheUnwrapping(Method method, Object[] args) {
+            return (method.getName().equals("unwrap") || method.getName().equals("isWrapperFor"))
+                    && args[0] == StatementCache.class
+                    && statementCacheSize > 0;
+        }
+
+        private boolean isConnectionError(SQLException e) {
+            return e.getSQLState() != null && e.getSQLState().startsWith("08");
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException(getClass().getName() + " does not wrap " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
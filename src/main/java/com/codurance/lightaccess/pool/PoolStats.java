@@ -0,0 +1,75 @@
+package com.codurance.lightaccess.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection acquisition latency and connection lifecycle counters of a
+ * {@link LAConnectionPool}.
+ */
+public class PoolStats {
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquisitionNanos = new LongAdder();
+    private final AtomicLong maxAcquisitionNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder connectionsRetired = new LongAdder();
+
+    public long acquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long averageAcquisitionNanos() {
+        long count = acquisitions.sum();
+        return (count == 0) ? 0 : acquisitionNanos.sum() / count;
+    }
+
+    public long maxAcquisitionNanos() {
+        return maxAcquisitionNanos.get();
+    }
+
+    public long timeouts() {
+        return timeouts.sum();
+    }
+
+    public long connectionsCreated() {
+        return connectionsCreated.sum();
+    }
+
+    public long connectionsRetired() {
+        return connectionsRetired.sum();
+    }
+
+    void acquired(long nanos) {
+        acquisitions.increment();
+        acquisitionNanos.add(nanos);
+        if (nanos > maxAcquisitionNanos.get()) {
+            maxAcquisitionNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    void timedOut() {
+        timeouts.increment();
+    }
+
+    void created() {
+        connectionsCreated.increment();
+    }
+
+    void retired() {
+        connectionsRetired.increment();
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{" +
+                "acquisitions=" + acquisitions() +
+                ", averageAcquisitionNanos=" + averageAcquisitionNanos() +
+                ", maxAcquisitionNanos=" + maxAcquisitionNanos() +
+                ", timeouts=" + timeouts() +
+                ", connectionsCreated=" + connectionsCreated() +
+                ", connectionsRetired=" + connectionsRetired() +
+                '}';
+    }
+}
@@ -0,0 +1,115 @@
+package com.codurance.lightaccess.pool;
+
+import com.codurance.lightaccess.connection.StatementCache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class PooledConnection {
+
+    private static final int IDLE = 0;
+    private static final int IN_USE = 1;
+    private static final int REMOVED = -1;
+
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final int defaultIsolation;
+    private final boolean defaultReadOnly;
+    private final long createdAt;
+    private final AtomicInteger state = new AtomicInteger(IN_USE);
+    private volatile long lastReturnedAt;
+    private volatile boolean broken;
+    private volatile boolean settingsChanged;
+
+    /**
+     * @param connection JDBC connection, whose current isolation level and read-only mode are restored when it is returned.
+     */
+    PooledConnection(Connection connection, StatementCache statementCache, long now) throws SQLException {
+        this.connection = connection;
+        this.statementCache = statementCache;
+        this.defaultIsolation = connection.getTransactionIsolation();
+        this.defaultReadOnly = connection.isReadOnly();
+        this.createdAt = now;
+        this.lastReturnedAt = now;
+    }
+
+    Connection connection() {
+        return connection;
+    }
+
+    StatementCache statementCache() {
+        return statementCache;
+    }
+
+    boolean reserve() {
+        return state.compareAndSet(IDLE, IN_USE);
+    }
+
+    void makeIdle(long now) {
+        lastReturnedAt = now;
+        state.set(IDLE);
+    }
+
+    /**
+     * Makes a reserved connection idle again, without it counting as returned.
+     */
+    void unreserve() {
+        state.set(IDLE);
+    }
+
+    boolean isIdle() {
+        return state.get() == IDLE;
+    }
+
+    boolean isInUse() {
+        return state.get() == IN_USE;
+    }
+
+    /**
+     * @return true the first time it is called.
+     */
+    boolean markRemoved() {
+        return state.getAndSet(REMOVED) != REMOVED;
+    }
+
+    boolean isRemoved() {
+        return state.get() == REMOVED;
+    }
+
+    void markBroken() {
+        broken = true;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Marks the isolation level or the read-only mode as changed, so that
+     * they are restored when the connection is returned.
+     */
+    void markSettingsChanged() {
+        settingsChanged = true;
+    }
+
+    /**
+     * Restores the isolation level and the read-only mode the connection was
+     * created with, if they were changed.
+     */
+    void restoreSettings() throws SQLException {
+        if (settingsChanged) {
+            connection.setTransactionIsolation(defaultIsolation);
+            connection.setReadOnly(defaultReadOnly);
+            settingsChanged = false;
+        }
+    }
+
+    long ageAt(long now) {
+        return now - createdAt;
+    }
+
+    long idleTimeAt(long now) {
+        return now - lastReturnedAt;
+    }
+}
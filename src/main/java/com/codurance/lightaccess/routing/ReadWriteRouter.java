@@ -0,0 +1,208 @@
+package com.codurance.lightaccess.routing;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Routes reads to replicas and writes to the primary data source. Reads
+ * go to the primary when there are no replicas, and when pinned to it to
+ * read your own writes despite replication lag:
+ * <ul>
+ *     <li>per thread, for some time after a write of the thread completed,
+ *     even if executed by another thread, and</li>
+ *     <li>within a scope, after a write in the scope.</li>
+ * </ul>
+ */
+public class ReadWriteRouter {
+
+    private final DataSource primary;
+    private final Route primaryRead;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final LongSupplier nanoClock;
+    private final ThreadLocal<LastWrite> lastWrite = ThreadLocal.withInitial(LastWrite::new);
+    private final ThreadLocal<Scope> scope = new ThreadLocal<>();
+    private ReplicaSelection selection = ReplicaSelection.ROUND_ROBIN;
+    private long pinNanos = 0;
+
+    /**
+     * @param primary data source used for writes, and for reads without replicas.
+     * @param replicas data sources used for reads.
+     */
+    public ReadWriteRouter(DataSource primary, List<DataSource> replicas) {
+        this(primary, replicas, System::nanoTime);
+    }
+
+    ReadWriteRouter(DataSource primary, List<DataSource> replicas, LongSupplier nanoClock) {
+        this.primary = primary;
+        this.primaryRead = new Route(primary, null, null);
+        this.nanoClock = nanoClock;
+        replicas.forEach(replica -> this.replicas.add(new Replica(replica)));
+    }
+
+    public ReadWriteRouter withSelection(ReplicaSelection selection) {
+        this.selection = selection;
+        return this;
+    }
+
+    /**
+     * Reads from the primary on a thread for the given time after the
+     * thread wrote, e.g. the maximum replication lag.
+     *
+     * @param pin time reads are pinned to the primary after a write.
+     * @return
+     */
+    public ReadWriteRouter withReadYourWrites(Duration pin) {
+        this.pinNanos = pin.toNanos();
+        return this;
+    }
+
+    /**
+     * Runs the work in a scope where reads go to the primary once the
+     * scope wrote, on the thread running the work.
+     *
+     * @param work reads and writes of the scope.
+     * @return result of the work.
+     */
+    public <T> T readingYourWrites(Supplier<T> work) {
+        if (scope.get() != null) {
+            return work.get();
+        }
+        scope.set(new Scope());
+        try {
+            return work.get();
+        } finally {
+            scope.remove();
+        }
+    }
+
+    /**
+     * @return route of a read, to a replica unless pinned to the primary.
+     */
+    public Route read() {
+        if (replicas.isEmpty() || pinnedToPrimary()) {
+            return primaryRead;
+        }
+        Replica replica = selectReplica();
+        replica.outstanding.incrementAndGet();
+        return replica.route;
+    }
+
+    /**
+     * Reads of the calling thread are pinned to the primary once the write
+     * completes, even if it is executed by another thread.
+     *
+     * @return route of a write, to the primary.
+     */
+    public Route write() {
+        Scope currentScope = scope.get();
+        if (currentScope != null) {
+            currentScope.wrote = true;
+        }
+        return new Route(primary, null, (pinNanos > 0) ? lastWrite.get() : null);
+    }
+
+    /**
+     * @return route of a read that must see the latest writes, to the primary.
+     */
+    public Route primary() {
+        return primaryRead;
+    }
+
+    /**
+     * @return number of reads in progress per replica, in the order of the replicas.
+     */
+    public List<Integer> outstandingReads() {
+        List<Integer> outstanding = new ArrayList<>();
+        replicas.forEach(replica -> outstanding.add(replica.outstanding.get()));
+        return outstanding;
+    }
+
+    private boolean pinnedToPrimary() {
+        Scope currentScope = scope.get();
+        if (currentScope != null && currentScope.wrote) {
+            return true;
+        }
+        if (pinNanos == 0) {
+            return false;
+        }
+        Long lastWriteNanos = lastWrite.get().nanos;
+        return lastWriteNanos != null && nanoClock.getAsLong() - lastWriteNanos < pinNanos;
+    }
+
+    private Replica selectReplica() {
+        int first = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        if (selection == ReplicaSelection.ROUND_ROBIN) {
+            return replicas.get(first);
+        }
+        Replica selected = replicas.get(first);
+        for (int i = 1; i < replicas.size(); i++) {
+            Replica replica = replicas.get((first + i) % replicas.size());
+            if (replica.outstanding.get() < selected.outstanding.get()) {
+                selected = replica;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Data source of a query or command, to be completed once its connection is closed.
+     */
+    public final class Route {
+        private final DataSource dataSource;
+        private final Replica replica;
+        private final LastWrite lastWrite;
+
+        private Route(DataSource dataSource, Replica replica, LastWrite lastWrite) {
+            this.dataSource = dataSource;
+            this.replica = replica;
+            this.lastWrite = lastWrite;
+        }
+
+        public DataSource dataSource() {
+            return dataSource;
+        }
+
+        /**
+         * @return whether connections are hinted to be read-only, i.e. for replicas.
+         */
+        public boolean readOnly() {
+            return replica != null;
+        }
+
+        public void completed() {
+            if (replica != null) {
+                replica.outstanding.decrementAndGet();
+            }
+            if (lastWrite != null) {
+                lastWrite.nanos = nanoClock.getAsLong();
+            }
+        }
+    }
+
+    private final class Replica {
+        private final Route route;
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private Replica(DataSource dataSource) {
+            this.route = new Route(dataSource, this, null);
+        }
+    }
+
+    private static final class Scope {
+        private boolean wrote = false;
+    }
+
+    /**
+     * Time the last write of a thread completed, possibly set by the thread
+     * executing the write.
+     */
+    private static final class LastWrite {
+        private volatile Long nanos;
+    }
+}
@@ -0,0 +1,18 @@
+package com.codurance.lightaccess.routing;
+
+/**
+ * How the replica reading a query is chosen.
+ */
+public enum ReplicaSelection {
+
+    /**
+     * Each replica in turn.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * The replica with the fewest queries in progress, taking turns among
+     * the ones with as few.
+     */
+    LEAST_OUTSTANDING
+}
@@ -0,0 +1,135 @@
+package com.codurance.lightaccess.sequences;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+
+/**
+ * Hands out ids from blocks reserved with a single call to a sequence,
+ * using the pooled algorithm: the sequence is incremented by
+ * {@code blockSize}, and each of its values {@code value} reserves the ids
+ * from {@code value - blockSize + 1} to {@code value}. Ids never collide with
+ * the values of the sequence used directly by other writers, as each value
+ * is the last id of its own block.
+ *
+ * Ids are handed out without locking. When only {@code refillThreshold} ids
+ * are left in the current block, the next block is reserved in the
+ * background so that callers rarely wait for the database.
+ */
+public class PooledIdAllocator {
+
+    private final IntSupplier nextValue;
+    private final int blockSize;
+    private final int refillThreshold;
+    private final Executor executor;
+    private final AtomicReference<IdBlock> current = new AtomicReference<>(new IdBlock(0, 0, 0));
+
+    /**
+     * @param nextValue returns the next value of the sequence, which must be incremented by {@code blockSize}.
+     * @param blockSize number of ids reserved per sequence value.
+     * @param refillThreshold number of ids left in a block when the next one
+     *                        is reserved in the background. 0 reserves it only
+     *                        when the block runs out.
+     * @param executor runs the background reservations.
+     */
+    public PooledIdAllocator(IntSupplier nextValue, int blockSize, int refillThreshold, Executor executor) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        if (refillThreshold < 0 || refillThreshold > blockSize) {
+            throw new IllegalArgumentException("Refill threshold must be between 0 and the block size: " + refillThreshold);
+        }
+        this.nextValue = nextValue;
+        this.blockSize = blockSize;
+        this.refillThreshold = refillThreshold;
+        this.executor = executor;
+    }
+
+    public int nextId() {
+        while (true) {
+            IdBlock block = current.get();
+            int offset = block.claim();
+            if (offset < block.size) {
+                if (offset == block.refillOffset) {
+                    reserveInBackground(block);
+                }
+                return block.first + offset;
+            }
+            current.compareAndSet(block, awaitSuccessorOf(block));
+        }
+    }
+
+    private IdBlock awaitSuccessorOf(IdBlock block) {
+        Reservation successor = successorOf(block);
+        successor.run();
+        try {
+            return successor.join();
+        } catch (CompletionException e) {
+            block.successor.compareAndSet(successor, null);
+            throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private void reserveInBackground(IdBlock block) {
+        Reservation reservation = new Reservation();
+        if (block.successor.compareAndSet(null, reservation)) {
+            try {
+                executor.execute(reservation);
+            } catch (RuntimeException e) {
+                // the reservation is run by the first caller needing the block
+            }
+        }
+    }
+
+    private Reservation successorOf(IdBlock block) {
+        Reservation successor = block.successor.get();
+        if (successor == null) {
+            block.successor.compareAndSet(null, new Reservation());
+            successor = block.successor.get();
+        }
+        return successor;
+    }
+
+    /**
+     * Reserves a block once, either in the background or, if the background
+     * reservation has not started yet, by the first caller needing the block.
+     */
+    private class Reservation extends CompletableFuture<IdBlock> implements Runnable {
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                int first = Math.subtractExact(nextValue.getAsInt(), blockSize - 1);
+                complete(new IdBlock(first, blockSize, blockSize - refillThreshold));
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class IdBlock {
+        private final int first;
+        private final int size;
+        private final int refillOffset;
+        private final AtomicInteger nextOffset = new AtomicInteger();
+        private final AtomicReference<Reservation> successor = new AtomicReference<>();
+
+        IdBlock(int first, int size, int refillOffset) {
+            this.first = first;
+            this.size = size;
+            this.refillOffset = refillOffset;
+        }
+
+        int claim() {
+            return nextOffset.getAndIncrement();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.codurance.lightaccess.async;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedExecutorShould {
+
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @After
+    public void after_each_test() {
+        threads.shutdownNow();
+    }
+
+    @Test public void
+    queue_tasks_when_max_in_flight_tasks_are_running() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor(threads, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        started.await(1, TimeUnit.SECONDS);
+
+        assertThat(executor.inFlight()).isEqualTo(2);
+        assertThat(executor.pending()).isEqualTo(3);
+        release.countDown();
+    }
+
+    @Test public void
+    run_queued_tasks_as_running_ones_complete() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor(threads, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch completed = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                running.decrementAndGet();
+                completed.countDown();
+            });
+        }
+
+        assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test public void
+    complete_queued_tasks_when_the_executor_rejects_new_work() throws Exception {
+        AtomicInteger submitted = new AtomicInteger();
+        BoundedExecutor executor = new BoundedExecutor(task -> {
+            if (submitted.incrementAndGet() > 1) {
+                throw new RejectedExecutionException("Executor shut down");
+            }
+            threads.execute(task);
+        }, 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> await(release), executor);
+        CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> {}, executor);
+        release.countDown();
+
+        CompletableFuture.allOf(running, queued).get(1, TimeUnit.SECONDS);
+        assertThat(submitted.get()).isEqualTo(1);
+    }
+
+    @Test public void
+    not_queue_a_task_rejected_by_the_executor() {
+        BoundedExecutor executor = new BoundedExecutor(task -> {
+            throw new RejectedExecutionException("Executor shut down");
+        }, 1);
+
+        assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.inFlight()).isEqualTo(0);
+        assertThat(executor.pending()).isEqualTo(0);
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.codurance.lightaccess.bulk;
+
+import com.codurance.lightaccess.connection.LAConnection;
+import com.codurance.lightaccess.connection.PreparedStatementBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class H2CsvBulkLoaderShould {
+
+    private static final List<String> COLUMNS = asList("id", "name");
+    private static final Function<Object[], Object[]> VALUES = row -> row;
+
+    @Mock LAConnection connection;
+    @Mock DatabaseMetaData metaData;
+    @Mock BulkLoader fallback;
+    @Mock PreparedStatementBuilder csvRead;
+
+    @Test public void
+    load_rows_from_a_csv_file_keeping_nulls_apart_from_empty_strings() throws Exception {
+        try (Connection h2 = DriverManager.getConnection("jdbc:h2:mem:csv_load", "sa", "")) {
+            execute(h2, "create table products (id integer primary key, name varchar(255))");
+            Iterator<Object[]> rows = asList(new Object[]{1, null},
+                                             new Object[]{2, ""},
+                                             new Object[]{3, "Product \"3\", new"}).iterator();
+
+            long loaded = new H2CsvBulkLoader(fallback).load(new LAConnection(h2), "products", COLUMNS, rows, VALUES);
+
+            assertThat(loaded).isEqualTo(3);
+            assertThat(names(h2)).containsExactly(null, "", "Product \"3\", new");
+            verifyZeroInteractions(fallback);
+        }
+    }
+
+    @Test public void
+    use_the_fallback_loader_when_the_database_cannot_read_the_csv_file() throws SQLException {
+        givenDatabase("H2", "jdbc:h2:mem:test");
+        given(connection.prepareStatement(startsWith("select count(*) from csvread("))).willReturn(csvRead);
+        given(csvRead.executeQuery()).willThrow(new RuntimeException(new SQLException("Admin rights are required for this operation")));
+        Iterator<Object[]> rows = Collections.<Object[]>singletonList(new Object[]{1, "Product 1"}).iterator();
+        given(fallback.load(connection, "products", COLUMNS, rows, VALUES)).willReturn(1L);
+
+        long loaded = new H2CsvBulkLoader(fallback).load(connection, "products", COLUMNS, rows, VALUES);
+
+        assertThat(loaded).isEqualTo(1);
+    }
+
+    @Test public void
+    use_the_fallback_loader_with_other_databases() throws SQLException {
+        givenDatabase("PostgreSQL", "jdbc:postgresql://localhost/test");
+        Iterator<Object[]> rows = Collections.<Object[]>singletonList(new Object[]{1, "Product 1"}).iterator();
+        given(fallback.load(connection, "products", COLUMNS, rows, VALUES)).willReturn(1L);
+
+        long loaded = new H2CsvBulkLoader(fallback).load(connection, "products", COLUMNS, rows, VALUES);
+
+        assertThat(loaded).isEqualTo(1);
+    }
+
+    @Test public void
+    use_the_fallback_loader_with_h2_servers() throws SQLException {
+        givenDatabase("H2", "jdbc:h2:tcp://localhost/~/test");
+        Iterator<Object[]> rows = Collections.<Object[]>singletonList(new Object[]{1, "Product 1"}).iterator();
+        given(fallback.load(connection, "products", COLUMNS, rows, VALUES)).willReturn(1L);
+
+        long loaded = new H2CsvBulkLoader(fallback).load(connection, "products", COLUMNS, rows, VALUES);
+
+        assertThat(loaded).isEqualTo(1);
+    }
+
+    @Test public void
+    reject_table_and_column_names_that_are_not_identifiers() {
+        Iterator<Object[]> rows = Collections.emptyIterator();
+        H2CsvBulkLoader loader = new H2CsvBulkLoader(fallback);
+
+        assertThatThrownBy(() -> loader.load(connection, "products; drop table users", COLUMNS, rows, VALUES))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> loader.load(connection, "public.products", asList("id", "name) select 1, '"), rows, VALUES))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyZeroInteractions(connection, fallback);
+    }
+
+    private void givenDatabase(String productName, String url) throws SQLException {
+        given(connection.metaData()).willReturn(metaData);
+        given(metaData.getDatabaseProductName()).willReturn(productName);
+        given(metaData.getURL()).willReturn(url);
+    }
+
+    private void execute(Connection h2, String sql) throws SQLException {
+        try (Statement statement = h2.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private List<String> names(Connection h2) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement statement = h2.createStatement();
+             ResultSet resultSet = statement.executeQuery("select name from products order by id")) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,137 @@
+package com.codurance.lightaccess.cache;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QueryCacheShould {
+
+    private static final QueryKey PRODUCT_ONE = QueryKey.of("select * from products where id = ?", 1).dependsOn("products");
+    private static final QueryKey PRODUCT_TWO = QueryKey.of("select * from products where id = ?", 2).dependsOn("products");
+    private static final QueryKey USER_ONE = QueryKey.of("select * from users where id = ?", 1).dependsOn("PUBLIC.USERS");
+
+    private final AtomicLong clock = new AtomicLong();
+    private final QueryCache cache = new QueryCache(2, Duration.ofSeconds(10), clock::get);
+    private final AtomicInteger queriesExecuted = new AtomicInteger();
+
+    @Test public void
+    return_the_cached_result_of_a_query_with_the_same_sql_and_parameters() {
+        cache.get(PRODUCT_ONE, () -> query("Product 1"));
+        String product = cache.get(QueryKey.of("select * from products where id = ?", 1), () -> query("Another product"));
+
+        assertThat(product).isEqualTo("Product 1");
+        assertThat(queriesExecuted.get()).isEqualTo(1);
+        assertThat(cache.stats().hits()).isEqualTo(1);
+        assertThat(cache.stats().misses()).isEqualTo(1);
+    }
+
+    @Test public void
+    evict_the_least_recently_used_result_when_full() {
+        cache.get(PRODUCT_ONE, () -> query("Product 1"));
+        cache.get(PRODUCT_TWO, () -> query("Product 2"));
+        cache.get(PRODUCT_ONE, () -> query("Product 1"));
+        cache.get(USER_ONE, () -> query("User 1"));
+
+        cache.get(PRODUCT_TWO, () -> query("Product 2"));
+
+        assertThat(queriesExecuted.get()).isEqualTo(4);
+        assertThat(cache.stats().evictions()).isEqualTo(2);
+    }
+
+    @Test public void
+    execute_the_query_again_once_its_result_expired() {
+        cache.get(PRODUCT_ONE, () -> query("Product 1"));
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        String product = cache.get(PRODUCT_ONE, () -> query("Updated product 1"));
+
+        assertThat(product).isEqualTo("Updated product 1");
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test public void
+    invalidate_results_depending_on_tables_changed_by_a_statement() {
+        cache.get(PRODUCT_ONE, () -> query("Product 1"));
+        cache.get(USER_ONE, () -> query("User 1"));
+
+        cache.invalidateTablesChangedBy(asList("select * from products", "UPDATE \"Users\" SET name = ? WHERE id = ?"));
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get(PRODUCT_ONE, () -> query("Product 1"))).isEqualTo("Product 1");
+        assertThat(cache.stats().invalidations()).isEqualTo(1);
+    }
+
+    @Test public void
+    invalidate_all_results_when_a_statement_is_not_recognised() {
+        cache.get(PRODUCT_ONE, () -> query("Product 1"));
+        cache.get(USER_ONE, () -> query("User 1"));
+
+        cache.invalidateTablesChangedBy(singletonList("call archive_products()"));
+
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test public void
+    share_a_single_query_between_concurrent_misses() throws Exception {
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get(PRODUCT_ONE, () -> {
+            queryStarted.countDown();
+            await(releaseQuery);
+            return query("Product 1");
+        }));
+        queryStarted.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.get(PRODUCT_ONE, () -> query("Another product")));
+
+        Thread.sleep(50);
+        releaseQuery.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Product 1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("Product 1");
+        assertThat(queriesExecuted.get()).isEqualTo(1);
+        assertThat(cache.stats().loads()).isEqualTo(1);
+    }
+
+    @Test public void
+    not_cache_a_result_loaded_while_its_tables_were_changed() {
+        String product = cache.get(PRODUCT_ONE, () -> {
+            cache.invalidateTablesChangedBy(singletonList("delete from products"));
+            return query("Deleted product 1");
+        });
+
+        assertThat(product).isEqualTo("Deleted product 1");
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test public void
+    not_cache_failed_queries() {
+        assertThatThrownBy(() -> cache.get(PRODUCT_ONE, () -> {
+            throw new IllegalStateException("Connection refused");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get(PRODUCT_ONE, () -> query("Product 1"))).isEqualTo("Product 1");
+    }
+
+    private String query(String result) {
+        queriesExecuted.incrementAndGet();
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.codurance.lightaccess.columnar;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.BitSet;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.BDDMockito.given;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ColumnarResultShould {
+
+    @Mock ResultSet resultSet;
+    @Mock ResultSetMetaData metaData;
+
+    private ColumnarResult result;
+
+    @Before
+    public void initialise() throws SQLException {
+        given(resultSet.getMetaData()).willReturn(metaData);
+        given(metaData.getColumnCount()).willReturn(3);
+        given(metaData.getColumnLabel(1)).willReturn("QUANTITY");
+        given(metaData.getColumnType(1)).willReturn(Types.INTEGER);
+        given(metaData.getColumnLabel(2)).willReturn("PRICE");
+        given(metaData.getColumnType(2)).willReturn(Types.DECIMAL);
+        given(metaData.getPrecision(2)).willReturn(10);
+        given(metaData.getScale(2)).willReturn(2);
+        given(metaData.getColumnLabel(3)).willReturn("COUNTRY");
+        given(metaData.getColumnType(3)).willReturn(Types.VARCHAR);
+        given(resultSet.next()).willReturn(true, true, true, false);
+        given(resultSet.getInt(1)).willReturn(10, 0, 30);
+        given(resultSet.getBigDecimal(2)).willReturn(new BigDecimal("0.10"), new BigDecimal("4.00"), new BigDecimal("0.20"));
+        given(resultSet.wasNull()).willReturn(false, true, false);
+        given(resultSet.getString(3)).willReturn("UK", "FR", "UK");
+
+        result = ColumnarResult.from(resultSet);
+    }
+
+    @Test public void
+    load_each_column_with_its_nulls() {
+        assertThat(result.size()).isEqualTo(3);
+        assertThat(result.intColumn("quantity").get(2)).isEqualTo(30);
+        assertThat(result.intColumn("quantity").isNull(1)).isTrue();
+        assertThat(result.decimalColumn("price").get(1)).isEqualTo(new BigDecimal("4.00"));
+        assertThat(result.stringColumn("country").get(1)).isEqualTo("FR");
+        assertThat(result.stringColumn("country").distinctValues()).isEqualTo(2);
+    }
+
+    @Test public void
+    aggregate_the_rows_with_a_value() {
+        IntColumn quantity = result.intColumn("quantity");
+
+        assertThat(quantity.count(result.allRows())).isEqualTo(2);
+        assertThat(quantity.sum(result.allRows())).isEqualTo(40);
+        assertThat(quantity.min(result.allRows())).isEqualTo(OptionalInt.of(10));
+        assertThat(quantity.average(result.allRows()).getAsDouble()).isEqualTo(20.0);
+    }
+
+    @Test public void
+    aggregate_the_rows_selected_by_another_column() {
+        BitSet uk = result.stringColumn("country").where("UK"::equals);
+
+        assertThat(uk.cardinality()).isEqualTo(2);
+        assertThat(result.decimalColumn("price").sum(uk)).isEqualTo(new BigDecimal("0.30"));
+        assertThat(result.stringColumn("country").countByValue(result.allRows())).containsExactly(entry("UK", 2), entry("FR", 1));
+    }
+
+    @Test public void
+    load_decimals_too_large_for_a_long_as_strings() throws SQLException {
+        given(metaData.getColumnCount()).willReturn(1);
+        given(metaData.getPrecision(1)).willReturn(30);
+        given(metaData.getColumnType(1)).willReturn(Types.NUMERIC);
+        given(resultSet.next()).willReturn(true, false);
+        given(resultSet.getString(1)).willReturn("123456789012345678901234567890");
+
+        ColumnarResult largeNumbers = ColumnarResult.from(resultSet);
+
+        assertThat(largeNumbers.stringColumn("quantity").get(0)).isEqualTo("123456789012345678901234567890");
+    }
+
+    @Test public void
+    reject_sums_overflowing_a_long() throws SQLException {
+        given(metaData.getColumnCount()).willReturn(1);
+        given(metaData.getColumnType(1)).willReturn(Types.BIGINT);
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getLong(1)).willReturn(Long.MAX_VALUE, 1L);
+        given(resultSet.wasNull()).willReturn(false);
+
+        LongColumn quantity = ColumnarResult.from(resultSet).longColumn("quantity");
+
+        assertThatThrownBy(() -> quantity.sum(quantity.where(value -> true))).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test public void
+    reject_columns_read_as_another_type() {
+        assertThatThrownBy(() -> result.intColumn("country"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("StringColumn");
+    }
+}
@@ -0,0 +1,108 @@
+package com.codurance.lightaccess.connection;
+
+import com.codurance.lightaccess.mapping.LAResultSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LAConnectionShould {
+
+    private static final String SELECT_SQL = "select * from products";
+
+    @Mock Connection connection;
+    @Mock PreparedStatement statement;
+    @Mock ResultSet resultSet;
+
+    @Test public void
+    close_the_result_sets_and_statements_left_open() throws Exception {
+        given(connection.prepareStatement(SELECT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(statement);
+        given(statement.executeQuery()).willReturn(resultSet);
+        LAConnection conn = new LAConnection(connection);
+
+        conn.prepareStatement(SELECT_SQL).executeQuery();
+        assertThat(conn.openResources()).isEqualTo(1);
+        conn.close();
+
+        InOrder inOrder = inOrder(resultSet, statement, connection);
+        inOrder.verify(resultSet).close();
+        inOrder.verify(statement).close();
+        inOrder.verify(connection).close();
+        assertThat(conn.openResources()).isEqualTo(0);
+    }
+
+    @Test public void
+    stop_tracking_closed_result_sets() throws Exception {
+        given(connection.prepareStatement(SELECT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(statement);
+        given(statement.executeQuery()).willReturn(resultSet);
+        LAConnection conn = new LAConnection(connection);
+
+        LAResultSet result = conn.prepareStatement(SELECT_SQL).executeQuery();
+        result.close();
+        result.close();
+        conn.close();
+
+        assertThat(conn.openResources()).isEqualTo(0);
+        verify(statement, times(1)).close();
+    }
+
+    @Test public void
+    roll_back_a_transaction_left_open_before_restoring_auto_commit() throws Exception {
+        given(connection.getAutoCommit()).willReturn(true);
+        LAConnection conn = new LAConnection(connection);
+
+        conn.beginTransaction(TransactionIsolation.DEFAULT);
+        conn.close();
+
+        InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).rollback();
+        inOrder.verify(connection).setAutoCommit(true);
+        inOrder.verify(connection).close();
+    }
+
+    @Test public void
+    not_roll_back_a_committed_transaction_when_closed() throws Exception {
+        given(connection.getAutoCommit()).willReturn(true);
+        LAConnection conn = new LAConnection(connection);
+
+        conn.beginTransaction(TransactionIsolation.DEFAULT);
+        conn.commit();
+        conn.close();
+
+        verify(connection, never()).rollback();
+    }
+
+    @Test public void
+    restore_the_isolation_level_but_not_auto_commit_when_the_rollback_fails() throws Exception {
+        SQLException networkFailure = new SQLException("Connection lost", "08006");
+        given(connection.getAutoCommit()).willReturn(true);
+        given(connection.getTransactionIsolation()).willReturn(Connection.TRANSACTION_READ_COMMITTED);
+        willThrow(networkFailure).given(connection).rollback();
+        LAConnection conn = new LAConnection(connection);
+
+        conn.beginTransaction(TransactionIsolation.SERIALIZABLE);
+
+        assertThatThrownBy(conn::close).isSameAs(networkFailure);
+        verify(connection).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        verify(connection, never()).setAutoCommit(true);
+        verify(connection).close();
+    }
+}
@@ -0,0 +1,109 @@
+package com.codurance.lightaccess.connection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeakDetectorShould {
+
+    private static final String SELECT_SQL = "select * from products";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final LeakDetector leakDetector = new LeakDetector(Duration.ofMillis(100), clock::get);
+    private final List<LogRecord> warnings = new ArrayList<>();
+    private final Logger logger = Logger.getLogger(LeakDetector.class.getName());
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            warnings.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Before
+    public void captureWarnings() {
+        logger.addHandler(handler);
+    }
+
+    @After
+    public void stopCapturingWarnings() {
+        logger.removeHandler(handler);
+        leakDetector.close();
+    }
+
+    @Test public void
+    report_resources_held_longer_than_the_threshold_with_their_allocation_site() {
+        leakDetector.allocated(SELECT_SQL);
+
+        clock.set(Duration.ofMillis(150).toNanos());
+        leakDetector.checkForLeaks();
+
+        assertThat(warnings).hasSize(1);
+        assertThat(warnings.get(0).getLevel()).isEqualTo(Level.WARNING);
+        assertThat(warnings.get(0).getMessage()).contains("150 ms", SELECT_SQL);
+        assertThat(warnings.get(0).getThrown().getStackTrace()[0].getMethodName()).isEqualTo("allocated");
+    }
+
+    @Test public void
+    not_report_resources_released_within_the_threshold() {
+        LeakDetector.Allocation allocation = leakDetector.allocated(SELECT_SQL);
+
+        clock.set(Duration.ofMillis(50).toNanos());
+        leakDetector.released(allocation);
+        clock.set(Duration.ofMillis(150).toNanos());
+        leakDetector.checkForLeaks();
+
+        assertThat(warnings).isEmpty();
+        assertThat(leakDetector.openResources()).isEqualTo(0);
+    }
+
+    @Test public void
+    report_each_resource_once() {
+        LeakDetector.Allocation allocation = leakDetector.allocated(SELECT_SQL);
+
+        clock.set(Duration.ofMillis(150).toNanos());
+        leakDetector.checkForLeaks();
+        leakDetector.checkForLeaks();
+        leakDetector.released(allocation);
+
+        assertThat(warnings).hasSize(1);
+    }
+
+    @Test public void
+    report_resources_released_after_the_threshold() {
+        LeakDetector.Allocation allocation = leakDetector.allocated(SELECT_SQL);
+
+        clock.set(Duration.ofMillis(150).toNanos());
+        leakDetector.released(allocation);
+
+        assertThat(warnings).hasSize(1);
+    }
+
+    @Test public void
+    report_resources_closed_with_their_connection() {
+        LeakDetector.Allocation allocation = leakDetector.allocated(SELECT_SQL);
+
+        leakDetector.closedWithConnection(allocation);
+
+        assertThat(warnings).hasSize(1);
+        assertThat(warnings.get(0).getMessage()).contains("not closed", SELECT_SQL);
+    }
+}
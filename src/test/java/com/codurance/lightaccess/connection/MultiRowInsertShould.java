@@ -0,0 +1,47 @@
+package com.codurance.lightaccess.connection;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MultiRowInsertShould {
+
+    private static final String INSERT_SQL = "insert into products (id, name) values (?, ?)";
+
+    @Test public void
+    repeat_the_values_tuple_once_per_row() {
+        MultiRowInsert insert = MultiRowInsert.of(INSERT_SQL);
+
+        assertThat(insert.sql(1)).isEqualTo(INSERT_SQL);
+        assertThat(insert.sql(3)).isEqualTo("insert into products (id, name) values (?, ?), (?, ?), (?, ?)");
+        assertThat(insert.parametersPerRow()).isEqualTo(2);
+    }
+
+    @Test public void
+    keep_what_follows_the_values_tuple() {
+        MultiRowInsert insert = MultiRowInsert.of("INSERT INTO products (id, name) VALUES (?, coalesce(?, '?)')) ON CONFLICT DO NOTHING");
+
+        assertThat(insert.sql(2)).isEqualTo("INSERT INTO products (id, name) VALUES (?, coalesce(?, '?)')), (?, coalesce(?, '?)')) ON CONFLICT DO NOTHING");
+        assertThat(insert.parametersPerRow()).isEqualTo(2);
+    }
+
+    @Test public void
+    reuse_the_statement_rewritten_for_a_number_of_rows() {
+        assertThat(MultiRowInsert.of(INSERT_SQL).sql(4)).isSameAs(MultiRowInsert.of(INSERT_SQL).sql(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void
+    reject_statements_without_values() {
+        MultiRowInsert.of("insert into products select * from old_products");
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void
+    reject_statements_already_inserting_several_rows() {
+        MultiRowInsert.of("insert into products (id) values (?), (?)");
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void
+    reject_parameters_after_the_values_tuple() {
+        MultiRowInsert.of("insert into products (id, name) values (?, ?) on conflict (id) do update set name = ?");
+    }
+}
@@ -0,0 +1,124 @@
+package com.codurance.lightaccess.connection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.FETCH_FORWARD;
+import static java.sql.ResultSet.FETCH_REVERSE;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StatementCacheShould {
+
+    private static final String SELECT_SQL = "select * from products";
+    private static final String INSERT_SQL = "insert into products (id) values (?)";
+    private static final String DELETE_SQL = "delete from products";
+
+    @Mock Connection connection;
+    @Mock PreparedStatement selectStatement;
+    @Mock PreparedStatement insertStatement;
+    @Mock PreparedStatement deleteStatement;
+
+    private final StatementCacheStats stats = new StatementCacheStats();
+
+    @Test public void
+    reuse_a_released_statement_with_cleared_parameters() throws SQLException {
+        given(connection.prepareStatement(SELECT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(selectStatement);
+        StatementCache cache = new StatementCache(connection, 2, stats);
+
+        cache.release(SELECT_SQL, cache.prepare(SELECT_SQL));
+        PreparedStatement reused = cache.prepare(SELECT_SQL);
+
+        assertThat(reused).isSameAs(selectStatement);
+        verify(selectStatement).clearParameters();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(1);
+    }
+
+    @Test public void
+    restore_the_settings_of_a_reused_statement() throws SQLException {
+        given(connection.prepareStatement(SELECT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(selectStatement);
+        given(selectStatement.getFetchSize()).willReturn(50);
+        StatementCache cache = new StatementCache(connection, 2, stats);
+        PreparedStatement statement = cache.prepare(SELECT_SQL);
+        statement.setMaxRows(10);
+        statement.setFetchSize(10);
+        statement.setFetchDirection(FETCH_REVERSE);
+
+        cache.release(SELECT_SQL, statement);
+        cache.prepare(SELECT_SQL);
+
+        verify(selectStatement).setMaxRows(0);
+        verify(selectStatement).setFetchSize(50);
+        verify(selectStatement).setFetchDirection(FETCH_FORWARD);
+    }
+
+    @Test public void
+    prepare_a_new_statement_when_the_cached_one_is_in_use() throws SQLException {
+        given(connection.prepareStatement(SELECT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(selectStatement, insertStatement);
+        StatementCache cache = new StatementCache(connection, 2, stats);
+
+        PreparedStatement first = cache.prepare(SELECT_SQL);
+        PreparedStatement second = cache.prepare(SELECT_SQL);
+        cache.release(SELECT_SQL, first);
+        cache.release(SELECT_SQL, second);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(cache.size()).isEqualTo(1);
+        verify(second).close();
+    }
+
+    @Test public void
+    close_the_least_recently_used_statement_when_full() throws SQLException {
+        given(connection.prepareStatement(SELECT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(selectStatement);
+        given(connection.prepareStatement(INSERT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(insertStatement);
+        given(connection.prepareStatement(DELETE_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(deleteStatement);
+        StatementCache cache = new StatementCache(connection, 2, stats);
+
+        cache.release(SELECT_SQL, cache.prepare(SELECT_SQL));
+        cache.release(INSERT_SQL, cache.prepare(INSERT_SQL));
+        cache.release(SELECT_SQL, cache.prepare(SELECT_SQL));
+        cache.release(DELETE_SQL, cache.prepare(DELETE_SQL));
+
+        verify(insertStatement).close();
+        verify(selectStatement, never()).close();
+        assertThat(stats.evictions()).isEqualTo(1);
+    }
+
+    @Test public void
+    close_released_statements_when_disabled() throws SQLException {
+        given(connection.prepareStatement(SELECT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(selectStatement);
+        StatementCache cache = new StatementCache(connection, 0, stats);
+
+        cache.release(SELECT_SQL, cache.prepare(SELECT_SQL));
+
+        verify(selectStatement).close();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test public void
+    close_all_cached_statements_when_closed() throws SQLException {
+        given(connection.prepareStatement(SELECT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(selectStatement);
+        given(connection.prepareStatement(INSERT_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).willReturn(insertStatement);
+        StatementCache cache = new StatementCache(connection, 2, stats);
+        cache.release(SELECT_SQL, cache.prepare(SELECT_SQL));
+        cache.release(INSERT_SQL, cache.prepare(INSERT_SQL));
+
+        cache.close();
+
+        verify(selectStatement).close();
+        verify(insertStatement).close();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+}
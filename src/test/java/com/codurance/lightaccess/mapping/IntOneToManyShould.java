@@ -0,0 +1,38 @@
+package com.codurance.lightaccess.mapping;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntOneToManyShould {
+
+    @Test public void
+    collect_keys_with_their_values_in_the_order_keys_were_first_put() {
+        IntOneToMany<String> oneToMany = new IntOneToMany<>();
+        oneToMany.put(2, Optional.of("Sally"));
+        oneToMany.put(1, Optional.of("John"));
+        oneToMany.put(2, Optional.of("Brian"));
+        oneToMany.put(3, Optional.empty());
+
+        List<String> collected = oneToMany.collect((key, values) -> key + "=" + values);
+
+        assertThat(collected).containsExactly("2=[Sally, Brian]", "1=[John]", "3=[]");
+    }
+
+    @Test public void
+    keep_all_keys_when_growing() {
+        IntOneToMany<Integer> oneToMany = new IntOneToMany<>();
+        for (int key = 0; key < 1000; key++) {
+            oneToMany.put(key * 1024, key);
+            oneToMany.put(key * 1024, -key);
+        }
+
+        List<Integer> sizes = oneToMany.collect((key, values) -> values.size());
+
+        assertThat(oneToMany.size()).isEqualTo(1000);
+        assertThat(sizes).containsOnly(2);
+    }
+}
@@ -1,5 +1,6 @@
 package com.codurance.lightaccess.mapping;
 
+import com.codurance.lightaccess.metrics.LightAccessListener;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,18 +9,32 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.sql.Date;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.math.BigDecimal;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
 
+import static java.util.Collections.singletonList;
 import static java.util.Optional.ofNullable;
 import static org.apache.commons.lang3.builder.EqualsBuilder.reflectionEquals;
 import static org.apache.commons.lang3.builder.HashCodeBuilder.reflectionHashCode;
 import static org.apache.commons.lang3.builder.ReflectionToStringBuilder.reflectionToString;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -28,8 +43,12 @@ public class LAResultSetShould {
     private static final LocalDate TODAY_LOCAL_DATE = LocalDate.of(2017, 07, 29);
     private static final java.sql.Date TODAY_SQL_DATE = localDateToSqlDate(TODAY_LOCAL_DATE);
     private static final java.util.Date TODAY_UTIL_DATE = sqlDateToUtilDate(TODAY_SQL_DATE);
+    private static final LocalDateTime NOW_LOCAL_DATE_TIME = LocalDateTime.of(2017, 07, 29, 10, 15, 30);
+    private static final Timestamp NOW_TIMESTAMP = Timestamp.valueOf(NOW_LOCAL_DATE_TIME);
 
     @Mock ResultSet resultSet;
+    @Mock Statement statement;
+    @Mock ResultSetMetaData metaData;
 
     private LAResultSet laResultSet;
 
@@ -53,6 +72,116 @@ public class LAResultSetShould {
         assertThat(laResultSet.getInt(1)).isEqualTo(10);
     }
 
+    @Test public void
+    return_primitive_and_decimal_values() throws SQLException {
+        given(resultSet.getLong(1)).willReturn(10_000_000_000L);
+        given(resultSet.getDouble(2)).willReturn(1.5);
+        given(resultSet.getBoolean(3)).willReturn(true);
+        given(resultSet.getBigDecimal(4)).willReturn(new BigDecimal("12.34"));
+
+        assertThat(laResultSet.getLong(1)).isEqualTo(10_000_000_000L);
+        assertThat(laResultSet.getDouble(2)).isEqualTo(1.5);
+        assertThat(laResultSet.getBoolean(3)).isTrue();
+        assertThat(laResultSet.getBigDecimal(4)).isEqualByComparingTo("12.34");
+    }
+
+    @Test public void
+    return_empty_optional_int_when_int_field_is_null() throws SQLException {
+        given(resultSet.getInt(1)).willReturn(0);
+        given(resultSet.wasNull()).willReturn(true);
+
+        assertThat(laResultSet.getOptionalInt(1)).isEqualTo(OptionalInt.empty());
+    }
+
+    @Test public void
+    return_optional_long_when_long_field_has_value() throws SQLException {
+        given(resultSet.getLong(1)).willReturn(0L);
+        given(resultSet.wasNull()).willReturn(false);
+
+        assertThat(laResultSet.getOptionalLong(1)).isEqualTo(OptionalLong.of(0L));
+    }
+
+    @Test public void
+    wrap_sql_exceptions_thrown_reading_a_column() throws SQLException {
+        SQLException cause = new SQLException("Invalid column index");
+        given(resultSet.getInt(1)).willThrow(cause);
+
+        assertThatThrownBy(() -> laResultSet.getInt(1))
+                .isExactlyInstanceOf(RuntimeException.class)
+                .hasCause(cause);
+    }
+
+    @Test public void
+    read_columns_by_case_insensitive_label() throws SQLException {
+        givenColumnLabels("ID", "NAME");
+        given(resultSet.getInt(1)).willReturn(10);
+        given(resultSet.getString(2)).willReturn("value");
+        LAResultSet results = new LAResultSet(resultSet, statement, "select id, name from case_insensitive", LightAccessListener.NONE);
+
+        assertThat(results.getInt("id")).isEqualTo(10);
+        assertThat(results.getString("Name")).isEqualTo("value");
+    }
+
+    @Test public void
+    read_the_first_column_with_a_duplicated_label() throws SQLException {
+        givenColumnLabels("id", "id");
+        given(resultSet.getInt(1)).willReturn(10);
+        LAResultSet results = new LAResultSet(resultSet, statement, "select p.id, c.id from duplicated_labels", LightAccessListener.NONE);
+
+        assertThat(results.getInt("id")).isEqualTo(10);
+    }
+
+    @Test public void
+    resolve_labels_once_for_all_the_results_of_a_statement() throws SQLException {
+        givenColumnLabels("id");
+        given(resultSet.getInt(1)).willReturn(10);
+        String sql = "select id from labels_resolved_once";
+        ColumnLabelCache columnLabelCache = new ColumnLabelCache(10);
+
+        new LAResultSet(resultSet, statement, sql, LightAccessListener.NONE, columnLabelCache).getInt("id");
+        new LAResultSet(resultSet, statement, sql, LightAccessListener.NONE, columnLabelCache).getInt("id");
+
+        verify(resultSet, times(1)).getMetaData();
+    }
+
+    @Test public void
+    resolve_labels_again_once_the_schema_changed() throws SQLException {
+        givenColumnLabels("id");
+        given(resultSet.getInt(1)).willReturn(10);
+        String sql = "select id from labels_resolved_after_schema_change";
+        ColumnLabelCache columnLabelCache = new ColumnLabelCache(10);
+
+        new LAResultSet(resultSet, statement, sql, LightAccessListener.NONE, columnLabelCache).getInt("id");
+        columnLabelCache.invalidateIfSchemaChangedBy(singletonList("ALTER TABLE labels_resolved_after_schema_change ADD name VARCHAR(255)"));
+        new LAResultSet(resultSet, statement, sql, LightAccessListener.NONE, columnLabelCache).getInt("id");
+
+        verify(resultSet, times(2)).getMetaData();
+    }
+
+    @Test public void
+    evict_the_labels_of_the_least_recently_used_statement() throws SQLException {
+        givenColumnLabels("id");
+        given(resultSet.getInt(1)).willReturn(10);
+        ColumnLabelCache columnLabelCache = new ColumnLabelCache(1);
+
+        new LAResultSet(resultSet, statement, "select id from first", LightAccessListener.NONE, columnLabelCache).getInt("id");
+        new LAResultSet(resultSet, statement, "select id from second", LightAccessListener.NONE, columnLabelCache).getInt("id");
+        new LAResultSet(resultSet, statement, "select id from first", LightAccessListener.NONE, columnLabelCache).getInt("id");
+
+        verify(resultSet, times(3)).getMetaData();
+        assertThat(columnLabelCache.size()).isEqualTo(1);
+    }
+
+    @Test public void
+    reject_unknown_column_labels() throws SQLException {
+        givenColumnLabels("id");
+        LAResultSet results = new LAResultSet(resultSet, statement, "select id from unknown_label", LightAccessListener.NONE);
+
+        assertThatThrownBy(() -> results.getInt("name"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("name");
+    }
+
     @Test public void
     return_empty_string_when_string_field_is_null() throws SQLException {
         given(resultSet.getString(1)).willReturn(null);
@@ -95,6 +224,35 @@ public class LAResultSetShould {
         assertThat(laResultSet.getLocalDate(1)).isEqualTo(TODAY_LOCAL_DATE);
     }
 
+    @Test public void
+    return_local_date_time_when_timestamp_field_has_value() throws SQLException {
+        given(resultSet.getTimestamp(1)).willReturn(NOW_TIMESTAMP);
+
+        assertThat(laResultSet.getLocalDateTime(1)).isEqualTo(NOW_LOCAL_DATE_TIME);
+    }
+
+    @Test public void
+    return_null_local_date_time_when_timestamp_field_is_null() throws SQLException {
+        given(resultSet.getTimestamp(1)).willReturn(null);
+
+        assertThat(laResultSet.getLocalDateTime(1)).isNull();
+    }
+
+    @Test public void
+    return_instant_when_timestamp_field_has_value() throws SQLException {
+        given(resultSet.getTimestamp(1)).willReturn(NOW_TIMESTAMP);
+
+        assertThat(laResultSet.getInstant(1)).isEqualTo(NOW_TIMESTAMP.toInstant());
+    }
+
+    @Test public void
+    return_offset_date_time_when_timestamp_with_time_zone_field_has_value() throws SQLException {
+        OffsetDateTime now = OffsetDateTime.of(NOW_LOCAL_DATE_TIME, ZoneOffset.ofHours(2));
+        given(resultSet.getObject(1, OffsetDateTime.class)).willReturn(now);
+
+        assertThat(laResultSet.getOffsetDateTime(1)).isEqualTo(now);
+    }
+
     @Test public void
     return_null_util_date_when_date_field_is_null() throws SQLException {
         given(resultSet.getDate(1)).willReturn(null);
@@ -195,6 +353,51 @@ public class LAResultSetShould {
         assertThat(persons).isEqualTo(expected);
     }
 
+    @Test public void
+    keep_the_children_of_equal_parents_with_different_keys_apart() throws SQLException {
+        Product product_1 = new Product(10, "product 10");
+        Product product_2 = new Product(20, "product 20");
+
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getInt(1)).willReturn(1, 2);
+        given(resultSet.getString(2)).willReturn("Same name");
+        given(resultSet.getInt(3)).willReturn(product_1.id, product_1.id, product_2.id, product_2.id);
+        given(resultSet.getString(4)).willReturn(product_1.description, product_2.description);
+
+        KeyedOneToMany<Integer, String, Product> products = laResultSet.normaliseOneToMany(rs -> rs.getInt(1),
+                                                                                            rs -> rs.getString(2),
+                                                                                            rs -> rs.getInt(3),
+                                                                                            rs -> new Product(rs.getInt(3), rs.getString(4)));
+
+        assertThat(products.collect((name, children) -> name + " " + children)).containsExactly(
+                "Same name " + singletonList(product_1),
+                "Same name " + singletonList(product_2));
+    }
+
+    @Test public void
+    return_a_lazy_stream_of_entities_when_streaming_result_set() throws SQLException {
+        Person person_1 = new Person(1, "Person 1");
+        Person person_2 = new Person(2, "Person 2");
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getInt(1)).willReturn(person_1.id, person_2.id);
+        given(resultSet.getString(2)).willReturn(person_1.name, person_2.name);
+
+        Stream<Person> persons = laResultSet.stream(this::toPerson);
+
+        verify(resultSet, never()).next();
+        assertThat(persons).containsExactly(person_1, person_2);
+    }
+
+    @Test public void
+    close_result_set_and_statement_when_stream_is_closed() throws SQLException {
+        given(resultSet.getStatement()).willReturn(statement);
+
+        laResultSet.stream(this::toPerson).close();
+
+        verify(resultSet).close();
+        verify(statement).close();
+    }
+
     @Test public void
     move_to_next_record() throws SQLException {
         laResultSet.nextRecord();
@@ -222,6 +425,14 @@ public class LAResultSetShould {
         return new Person(laResultSet.getInt(1), laResultSet.getString(2));
     }
 
+    private void givenColumnLabels(String... labels) throws SQLException {
+        given(resultSet.getMetaData()).willReturn(metaData);
+        given(metaData.getColumnCount()).willReturn(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            given(metaData.getColumnLabel(i + 1)).willReturn(labels[i]);
+        }
+    }
+
     private static java.util.Date sqlDateToUtilDate(java.sql.Date sqlDate) {
         return new java.util.Date(sqlDate.getTime());
     }
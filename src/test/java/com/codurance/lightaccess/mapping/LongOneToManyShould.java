@@ -0,0 +1,25 @@
+package com.codurance.lightaccess.mapping;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongOneToManyShould {
+
+    private static final long LARGE_ID = 10_000_000_000L;
+
+    @Test public void
+    collect_keys_with_their_values_in_the_order_keys_were_first_put() {
+        LongOneToMany<String> oneToMany = new LongOneToMany<>();
+        oneToMany.put(LARGE_ID + 1, "Sally");
+        oneToMany.put(LARGE_ID);
+        oneToMany.put(LARGE_ID + 1, Optional.of("Brian"));
+
+        List<String> collected = oneToMany.collect((key, values) -> key + "=" + values);
+
+        assertThat(collected).containsExactly("10000000001=[Sally, Brian]", "10000000000=[]");
+    }
+}
@@ -0,0 +1,66 @@
+package com.codurance.lightaccess.metrics;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatementMetricsShould {
+
+    private final StatementMetrics metrics = new StatementMetrics();
+
+    @Test public void
+    group_statements_differing_only_by_literals_and_whitespace() {
+        metrics.statementExecuted("select * from products where id = 1", 100);
+        metrics.statementExecuted("SELECT *  FROM products\n WHERE id = 25", 300);
+        metrics.statementExecuted("select * from products where name = 'O''Neil'", 200);
+
+        assertThat(metrics.statements()).containsOnlyKeys(
+                "select * from products where id = ?",
+                "select * from products where name = ?");
+        assertThat(metrics.statements().get("select * from products where id = ?").execution().count()).isEqualTo(2);
+    }
+
+    @Test public void
+    keep_digits_that_are_part_of_identifiers() {
+        assertThat(SqlFingerprint.of("select col1 from table_2 where id in (1, 2.5)"))
+                .isEqualTo("select col1 from table_2 where id in (?, ?)");
+    }
+
+    @Test public void
+    count_rows_mapped_and_errors_per_statement() {
+        metrics.rowsMapped("select * from products", 10, 1_000);
+        metrics.rowsMapped("select * from products", 5, 3_000);
+        metrics.failed("select * from products", new SQLException());
+
+        StatementMetrics.Statement statement = metrics.statements().get("select * from products");
+        assertThat(statement.rowsMapped()).isEqualTo(15);
+        assertThat(statement.mapping().meanNanos()).isEqualTo(2_000);
+        assertThat(statement.errors()).isEqualTo(1);
+    }
+
+    @Test public void
+    count_connection_errors_separately_from_statements() {
+        metrics.connectionAcquired(500);
+        metrics.failed(null, new SQLException());
+
+        assertThat(metrics.connectionAcquisition().count()).isEqualTo(1);
+        assertThat(metrics.connectionErrors()).isEqualTo(1);
+        assertThat(metrics.statements()).isEmpty();
+    }
+
+    @Test public void
+    estimate_percentiles_with_the_upper_bound_of_power_of_two_buckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5_000);
+
+        assertThat(histogram.percentileNanos(50)).isEqualTo(127);
+        assertThat(histogram.percentileNanos(99)).isEqualTo(127);
+        assertThat(histogram.percentileNanos(100)).isEqualTo(5_000);
+        assertThat(histogram.maxNanos()).isEqualTo(5_000);
+    }
+}
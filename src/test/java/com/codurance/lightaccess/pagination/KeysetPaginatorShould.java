@@ -0,0 +1,81 @@
+package com.codurance.lightaccess.pagination;
+
+import com.codurance.lightaccess.LightAccess;
+import com.codurance.lightaccess.executables.SQLQuery;
+import com.codurance.lightaccess.mapping.LAResultSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KeysetPaginatorShould {
+
+    private static final String SELECT_SQL = "select * from products";
+    private static final Function<LAResultSet, Integer> MAP_ID = rs -> rs.getInt(1);
+
+    @Mock LightAccess lightAccess;
+
+    @Test public void
+    stop_after_a_page_smaller_than_the_page_size() {
+        given(lightAccess.executeQuery(any(SQLQuery.class))).willReturn(asList(1, 2), asList(3, 4), asList(5));
+
+        List<List<Integer>> pages = paginatorOfPagesOf(2).pages().collect(toList());
+
+        assertThat(pages).containsExactly(asList(1, 2), asList(3, 4), asList(5));
+        verify(lightAccess, times(3)).executeQuery(any(SQLQuery.class));
+    }
+
+    @Test public void
+    stop_at_the_first_empty_page() {
+        given(lightAccess.executeQuery(any(SQLQuery.class))).willReturn(asList(1, 2), Collections.emptyList());
+
+        List<Integer> records = paginatorOfPagesOf(2).records().collect(toList());
+
+        assertThat(records).containsExactly(1, 2);
+    }
+
+    @Test public void
+    read_the_next_page_while_the_current_one_is_processed_when_prefetching() {
+        given(lightAccess.executeQuery(any(SQLQuery.class))).willReturn(asList(1, 2));
+        given(lightAccess.executeQueryAsync(any(SQLQuery.class))).willReturn(completedFuture(asList(3, 4)), completedFuture(asList(5)));
+
+        List<Integer> records = paginatorOfPagesOf(2).withPrefetch().records().collect(toList());
+
+        assertThat(records).containsExactly(1, 2, 3, 4, 5);
+        verify(lightAccess, times(1)).executeQuery(any(SQLQuery.class));
+        verify(lightAccess, times(2)).executeQueryAsync(any(SQLQuery.class));
+    }
+
+    @Test public void
+    cancel_the_prefetched_page_when_the_records_are_closed() {
+        CompletableFuture<List<Integer>> nextPage = new CompletableFuture<>();
+        given(lightAccess.executeQuery(any(SQLQuery.class))).willReturn(asList(1, 2));
+        given(lightAccess.executeQueryAsync(any(SQLQuery.class))).willReturn(nextPage);
+
+        try (Stream<Integer> records = paginatorOfPagesOf(2).withPrefetch().records()) {
+            assertThat(records.findFirst()).contains(1);
+        }
+
+        assertThat(nextPage.isCancelled()).isTrue();
+    }
+
+    private KeysetPaginator<Integer> paginatorOfPagesOf(int pageSize) {
+        return new KeysetPaginator<>(lightAccess, SELECT_SQL, "id", id -> id, MAP_ID, pageSize);
+    }
+}
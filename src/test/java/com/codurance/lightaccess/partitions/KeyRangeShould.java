@@ -0,0 +1,23 @@
+package com.codurance.lightaccess.partitions;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeyRangeShould {
+
+    @Test public void
+    split_into_contiguous_ranges_of_almost_the_same_size() {
+        assertThat(KeyRange.of(1, 11).split(3)).containsExactly(KeyRange.of(1, 5), KeyRange.of(5, 8), KeyRange.of(8, 11));
+    }
+
+    @Test public void
+    not_split_into_empty_ranges() {
+        assertThat(KeyRange.of(0, 2).split(5)).containsExactly(KeyRange.of(0, 1), KeyRange.of(1, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void
+    reject_ranges_ending_before_they_start() {
+        KeyRange.of(10, 1);
+    }
+}
@@ -0,0 +1,45 @@
+package com.codurance.lightaccess.partitions;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PartitionedResultsShould {
+
+    private final CompletableFuture<List<Integer>> first = new CompletableFuture<>();
+    private final CompletableFuture<List<Integer>> second = new CompletableFuture<>();
+    private final PartitionedResults<Integer> results = new PartitionedResults<>(asList(first, second));
+
+    @Test public void
+    merge_the_results_in_the_order_of_the_partitions() {
+        second.complete(asList(3, 4));
+        first.complete(asList(1, 2));
+
+        assertThat(results.toList()).containsExactly(1, 2, 3, 4);
+        assertThat(results.stream().collect(toList())).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test public void
+    merge_the_results_in_the_order_the_partitions_complete() {
+        second.complete(asList(3, 4));
+        Stream<Integer> merged = results.streamInCompletionOrder();
+        first.complete(asList(1, 2));
+
+        assertThat(merged.collect(toList())).containsExactly(3, 4, 1, 2);
+    }
+
+    @Test public void
+    fail_when_a_partition_fails() {
+        first.complete(asList(1, 2));
+        second.completeExceptionally(new IllegalStateException("Partition failed"));
+
+        assertThatThrownBy(results::toListInCompletionOrder).isInstanceOf(IllegalStateException.class);
+    }
+}
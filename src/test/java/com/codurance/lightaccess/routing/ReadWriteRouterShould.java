@@ -0,0 +1,109 @@
+package com.codurance.lightaccess.routing;
+
+import com.codurance.lightaccess.routing.ReadWriteRouter.Route;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadWriteRouterShould {
+
+    @Mock DataSource primary;
+    @Mock DataSource firstReplica;
+    @Mock DataSource secondReplica;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test public void
+    read_from_the_primary_without_replicas() {
+        ReadWriteRouter router = new ReadWriteRouter(primary, emptyList(), clock::get);
+
+        assertThat(router.read().dataSource()).isSameAs(primary);
+        assertThat(router.read().readOnly()).isFalse();
+    }
+
+    @Test public void
+    write_to_the_primary() {
+        assertThat(routerWithTwoReplicas().write().dataSource()).isSameAs(primary);
+    }
+
+    @Test public void
+    read_from_each_replica_in_turn() {
+        ReadWriteRouter router = routerWithTwoReplicas();
+
+        assertThat(router.read().dataSource()).isSameAs(firstReplica);
+        assertThat(router.read().dataSource()).isSameAs(secondReplica);
+        assertThat(router.read().dataSource()).isSameAs(firstReplica);
+        assertThat(router.read().readOnly()).isTrue();
+    }
+
+    @Test public void
+    read_from_the_replica_with_fewest_reads_in_progress() {
+        ReadWriteRouter router = routerWithTwoReplicas().withSelection(ReplicaSelection.LEAST_OUTSTANDING);
+
+        Route first = router.read();
+        Route second = router.read();
+        router.read().completed();
+        second.completed();
+
+        assertThat(router.read().dataSource()).isSameAs(secondReplica);
+        assertThat(first.dataSource()).isSameAs(firstReplica);
+        assertThat(router.outstandingReads()).containsExactly(1, 1);
+    }
+
+    @Test public void
+    read_from_the_primary_for_some_time_after_writing() {
+        ReadWriteRouter router = routerWithTwoReplicas().withReadYourWrites(Duration.ofSeconds(1));
+
+        router.write().completed();
+        clock.set(Duration.ofMillis(500).toNanos());
+        DataSource readBeforeReplicationLag = router.read().dataSource();
+        clock.set(Duration.ofMillis(1500).toNanos());
+        DataSource readAfterReplicationLag = router.read().dataSource();
+
+        assertThat(readBeforeReplicationLag).isSameAs(primary);
+        assertThat(readAfterReplicationLag).isSameAs(firstReplica);
+    }
+
+    @Test public void
+    read_from_the_primary_after_a_write_completed_by_another_thread() throws Exception {
+        ReadWriteRouter router = routerWithTwoReplicas().withReadYourWrites(Duration.ofSeconds(1));
+
+        Route write = router.write();
+        CompletableFuture.runAsync(write::completed).get(1, TimeUnit.SECONDS);
+        DataSource readAfterWrite = router.read().dataSource();
+        DataSource readOfAnotherThread = CompletableFuture.supplyAsync(() -> router.read().dataSource()).get(1, TimeUnit.SECONDS);
+
+        assertThat(readAfterWrite).isSameAs(primary);
+        assertThat(readOfAnotherThread).isSameAs(firstReplica);
+    }
+
+    @Test public void
+    read_from_the_primary_after_writing_in_a_scope() {
+        ReadWriteRouter router = routerWithTwoReplicas();
+
+        DataSource readInScope = router.readingYourWrites(() -> {
+            router.write();
+            return router.read().dataSource();
+        });
+        DataSource readAfterScope = router.read().dataSource();
+
+        assertThat(readInScope).isSameAs(primary);
+        assertThat(readAfterScope).isSameAs(firstReplica);
+    }
+
+    private ReadWriteRouter routerWithTwoReplicas() {
+        return new ReadWriteRouter(primary, asList(firstReplica, secondReplica), clock::get);
+    }
+}
@@ -0,0 +1,111 @@
+package com.codurance.lightaccess.sequences;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PooledIdAllocatorShould {
+
+    private final AtomicInteger sequence = new AtomicInteger(10);
+
+    @Test public void
+    hand_out_consecutive_ids_from_a_block_reserved_with_one_sequence_call() {
+        PooledIdAllocator allocator = new PooledIdAllocator(nextValueIncrementedBy(10), 10, 0, Runnable::run);
+
+        List<Integer> ids = range(0, 3).mapToObj(i -> allocator.nextId()).collect(toList());
+
+        assertThat(ids).containsExactly(1, 2, 3);
+        assertThat(sequence.get()).isEqualTo(20);
+    }
+
+    @Test public void
+    reserve_a_new_block_when_the_current_one_runs_out() {
+        sequence.set(2);
+        PooledIdAllocator allocator = new PooledIdAllocator(nextValueIncrementedBy(2), 2, 0, Runnable::run);
+
+        List<Integer> ids = range(0, 5).mapToObj(i -> allocator.nextId()).collect(toList());
+
+        assertThat(ids).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test public void
+    reserve_the_next_block_in_the_background_when_reaching_the_refill_threshold() {
+        List<Runnable> reservations = new CopyOnWriteArrayList<>();
+        sequence.set(4);
+        PooledIdAllocator allocator = new PooledIdAllocator(nextValueIncrementedBy(4), 4, 2, reservations::add);
+
+        allocator.nextId();
+        allocator.nextId();
+        assertThat(reservations).isEmpty();
+
+        allocator.nextId();
+        assertThat(reservations).hasSize(1);
+
+        reservations.get(0).run();
+        allocator.nextId();
+        assertThat(allocator.nextId()).isEqualTo(5);
+        assertThat(sequence.get()).isEqualTo(12);
+    }
+
+    @Test public void
+    retry_the_reservation_when_the_sequence_call_fails() {
+        AtomicInteger calls = new AtomicInteger();
+        PooledIdAllocator allocator = new PooledIdAllocator(() -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return sequence.getAndAdd(10);
+        }, 10, 0, Runnable::run);
+
+        try {
+            allocator.nextId();
+        } catch (IllegalStateException expected) {
+            // first reservation fails
+        }
+
+        assertThat(allocator.nextId()).isEqualTo(1);
+    }
+
+    @Test public void
+    hand_out_unique_ids_to_concurrent_callers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        sequence.set(16);
+        PooledIdAllocator allocator = new PooledIdAllocator(nextValueIncrementedBy(16), 16, 8, executor);
+
+        List<Future<Integer>> ids = executor.invokeAll(range(0, 10_000)
+                                                            .mapToObj(i -> (Callable<Integer>) allocator::nextId)
+                                                            .collect(toList()));
+        Set<Integer> uniqueIds = ConcurrentHashMap.newKeySet();
+        for (Future<Integer> id : ids) {
+            uniqueIds.add(id.get());
+        }
+        executor.shutdown();
+
+        assertThat(uniqueIds).hasSize(10_000);
+    }
+
+    @Test public void
+    not_hand_out_the_values_of_the_sequence_used_by_other_writers() {
+        PooledIdAllocator allocator = new PooledIdAllocator(nextValueIncrementedBy(10), 10, 0, Runnable::run);
+
+        int firstId = allocator.nextId();
+        int idOfAnotherWriter = nextValueIncrementedBy(10).getAsInt();
+        List<Integer> ids = range(0, 19).mapToObj(i -> allocator.nextId()).collect(toList());
+
+        assertThat(firstId).isEqualTo(1);
+        assertThat(idOfAnotherWriter).isEqualTo(20);
+        assertThat(ids).doesNotContain(idOfAnotherWriter).endsWith(30);
+    }
+
+    private IntSupplier nextValueIncrementedBy(int increment) {
+        return () -> sequence.getAndAdd(increment);
+    }
+}
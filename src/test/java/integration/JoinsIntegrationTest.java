@@ -2,9 +2,15 @@ package integration;
 
 import com.codurance.lightaccess.LightAccess;
 import com.codurance.lightaccess.executables.DDLCommand;
+import com.codurance.lightaccess.executables.SQLQuery;
+import com.codurance.lightaccess.mapping.Hierarchy;
+import com.codurance.lightaccess.mapping.IntOneToMany;
 import com.codurance.lightaccess.mapping.KeyValue;
+import com.codurance.lightaccess.mapping.KeyedOneToMany;
 import com.codurance.lightaccess.mapping.LAResultSet;
+import com.codurance.lightaccess.mapping.LongOneToMany;
 import com.codurance.lightaccess.mapping.OneToMany;
+import com.codurance.lightaccess.partitions.KeyRange;
 import integration.dtos.*;
 import org.h2.jdbcx.JdbcConnectionPool;
 import org.junit.After;
@@ -14,8 +20,10 @@ import org.junit.Test;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
@@ -47,6 +55,19 @@ public class JoinsIntegrationTest {
                     "left join wishlist_product wp on w.wishListId = wp.wishListId " +
                     "left join products p on wp.productId = p.productId " +
                     "where w.userId = ?";
+    private static final String SELECT_ORDERED_WISHLISTS_WITH_PRODUCTS_PER_USER_SQL =
+            SELECT_WISHLISTS_WITH_PRODUCTS_PER_USER_SQL + " order by w.wishListId, p.productId";
+
+    private static final String SELECT_USERS_WITH_WISHLISTS_WITH_PRODUCTS_SQL =
+            "select u.userId, u.name, w.wishListId, w.userId, w.name, w.creationDate, p.productId, p.name, p.date " +
+                    "from users u " +
+                    "left join wishlists w on u.userId = w.userId " +
+                    "left join wishlist_product wp on w.wishListId = wp.wishListId " +
+                    "left join products p on wp.productId = p.productId " +
+                    "order by u.userId, w.wishListId, p.productId";
+
+    private static final String SELECT_PRODUCT_IDS_OF_WISHLIST_PRODUCTS_SQL =
+            "select productId from wishlist_product where id >= ? and id < ? order by id";
 
     private static final User JOHN = new User(1, "John");
     private static final User SALLY = new User(2, "Sally");
@@ -113,6 +134,148 @@ public class JoinsIntegrationTest {
                         wishListWithProducts(FATHERS_DAY_WISHLIST));
     }
 
+    @Test public void
+    map_each_wishlist_once_when_normalising_by_key() {
+        givenWeHaveUsers(JOHN, SALLY);
+        givenWeHaveProducts(MACBOOK_PRO, IPHONE, IPAD);
+        givenWeHaveAWishListFor(JOHN, XMAS_WISHLIST, MACBOOK_PRO, IPHONE);
+        givenWeHaveAWishListFor(JOHN, BIRTHDAY_WISHLIST, IPAD);
+        givenWeHaveAWishListFor(JOHN, FATHERS_DAY_WISHLIST);
+        AtomicInteger wishListsMapped = new AtomicInteger();
+
+        KeyedOneToMany<Integer, WishList, Product> userWishListWithProducts = lightAccess.executeQuery(conn ->
+                conn.prepareStatement(SELECT_WISHLISTS_WITH_PRODUCTS_PER_USER_SQL)
+                        .withParam(JOHN.id())
+                        .executeQuery()
+                        .normaliseOneToMany(rs -> rs.getInt(1),
+                                            rs -> {
+                                                wishListsMapped.incrementAndGet();
+                                                return new WishList(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getLocalDate(4));
+                                            },
+                                            rs -> rs.getOptionalInt(5),
+                                            rs -> new Product(rs.getInt(5), rs.getString(6), rs.getLocalDate(7))));
+
+        assertThat(userWishListWithProducts.collect(this::toWishListProducts))
+                .containsExactlyInAnyOrder(
+                        wishListWithProducts(XMAS_WISHLIST, MACBOOK_PRO, IPHONE),
+                        wishListWithProducts(BIRTHDAY_WISHLIST, IPAD),
+                        wishListWithProducts(FATHERS_DAY_WISHLIST));
+        assertThat(wishListsMapped.get()).isEqualTo(3);
+    }
+
+    @Test public void
+    normalise_products_per_wishlist_id_without_boxing_the_ids() {
+        givenWeHaveUsers(JOHN);
+        givenWeHaveProducts(MACBOOK_PRO, IPHONE, IPAD);
+        givenWeHaveAWishListFor(JOHN, XMAS_WISHLIST, MACBOOK_PRO, IPHONE);
+        givenWeHaveAWishListFor(JOHN, BIRTHDAY_WISHLIST, IPAD);
+        givenWeHaveAWishListFor(JOHN, FATHERS_DAY_WISHLIST);
+
+        IntOneToMany<Product> productsPerWishList = lightAccess.executeQuery(conn ->
+                conn.prepareStatement(SELECT_ORDERED_WISHLISTS_WITH_PRODUCTS_PER_USER_SQL)
+                        .withParam(JOHN.id())
+                        .executeQuery()
+                        .normaliseIntOneToMany(rs -> rs.getInt(1), this::toProduct));
+
+        assertThat(productsPerWishList.collect((wishListId, products) -> wishListId + "=" + products)).containsExactly(
+                XMAS_WISHLIST.id() + "=" + asList(MACBOOK_PRO, IPHONE),
+                BIRTHDAY_WISHLIST.id() + "=" + asList(IPAD),
+                FATHERS_DAY_WISHLIST.id() + "=" + emptyList());
+    }
+
+    @Test public void
+    normalise_wishlists_per_long_user_id_without_boxing_the_ids() {
+        givenWeHaveUsers(JOHN, SALLY);
+        givenWeHaveProducts(MACBOOK_PRO, IPHONE, IPAD);
+        givenWeHaveAWishListFor(JOHN, XMAS_WISHLIST, MACBOOK_PRO, IPHONE);
+        givenWeHaveAWishListFor(JOHN, BIRTHDAY_WISHLIST, IPAD);
+
+        LongOneToMany<WishList> wishListsPerUser = lightAccess.executeQuery(conn ->
+                conn.prepareStatement(SELECT_WISHLISTS_PER_USER_SQL + " order by u.userId, w.wishListId")
+                        .executeQuery()
+                        .normaliseLongOneToMany(rs -> rs.getLong(1),
+                                                rs -> rs.getOptionalInt(3).isPresent()
+                                                        ? new WishList(rs.getInt(3), rs.getInt(4), rs.getString(5), rs.getLocalDate(6))
+                                                        : null));
+
+        assertThat(wishListsPerUser.collect((userId, wishLists) -> userId + "=" + wishLists)).containsExactly(
+                JOHN.id() + "=" + asList(wishList(1, JOHN, "Xmas"), wishList(2, JOHN, "Birthday")),
+                SALLY.id() + "=" + emptyList());
+    }
+
+    @Test public void
+    emit_each_wishlist_with_its_products_in_the_order_of_the_query() {
+        givenWeHaveUsers(JOHN, SALLY);
+        givenWeHaveProducts(MACBOOK_PRO, IPHONE, IPAD);
+        givenWeHaveAWishListFor(JOHN, FATHERS_DAY_WISHLIST);
+        givenWeHaveAWishListFor(JOHN, XMAS_WISHLIST, IPHONE, MACBOOK_PRO);
+        givenWeHaveAWishListFor(JOHN, BIRTHDAY_WISHLIST, IPAD);
+
+        List<WishListProduct> userWishListWithProducts = new ArrayList<>();
+        lightAccess.executeCommand(conn -> conn.prepareStatement(SELECT_ORDERED_WISHLISTS_WITH_PRODUCTS_PER_USER_SQL)
+                                                .withParam(JOHN.id())
+                                                .executeQuery()
+                                                .normaliseOrderedOneToMany(this::toWithListWithProduct,
+                                                        (wishList, products) -> userWishListWithProducts.add(toWishListProducts(wishList, products))));
+
+        assertThat(userWishListWithProducts).containsExactly(
+                wishListWithProducts(XMAS_WISHLIST, MACBOOK_PRO, IPHONE),
+                wishListWithProducts(BIRTHDAY_WISHLIST, IPAD),
+                wishListWithProducts(FATHERS_DAY_WISHLIST));
+    }
+
+    @Test public void
+    normalise_users_with_their_wishlists_and_products_in_a_single_pass() {
+        givenWeHaveUsers(JOHN, SALLY);
+        givenWeHaveProducts(MACBOOK_PRO, IPHONE, IPAD);
+        givenWeHaveAWishListFor(JOHN, XMAS_WISHLIST, MACBOOK_PRO, IPHONE);
+        givenWeHaveAWishListFor(JOHN, BIRTHDAY_WISHLIST, IPAD);
+        givenWeHaveAWishListFor(JOHN, FATHERS_DAY_WISHLIST);
+
+        Hierarchy<Product> products = Hierarchy.of(rs -> rs.getOptionalInt(7),
+                                                   rs -> new Product(rs.getInt(7), rs.getString(8), rs.getLocalDate(9)));
+        Hierarchy<WishListProduct> wishLists = Hierarchy.of(rs -> rs.getOptionalInt(3),
+                                                            rs -> new WishList(rs.getInt(3), rs.getInt(4), rs.getString(5), rs.getLocalDate(6)),
+                                                            products,
+                                                            WishListProduct::new);
+        Hierarchy<UserWithWishListProducts> users = Hierarchy.of(rs -> rs.getInt(1),
+                                                                 rs -> new User(rs.getInt(1), rs.getString(2)),
+                                                                 wishLists,
+                                                                 UserWithWishListProducts::new);
+
+        List<UserWithWishListProducts> usersWithWishLists = lightAccess.executeQuery(conn ->
+                conn.prepareStatement(SELECT_USERS_WITH_WISHLISTS_WITH_PRODUCTS_SQL)
+                        .executeQuery()
+                        .normaliseHierarchy(users));
+
+        assertThat(usersWithWishLists).containsExactly(
+                new UserWithWishListProducts(JOHN, asList(wishListWithProducts(XMAS_WISHLIST, MACBOOK_PRO, IPHONE),
+                                                          wishListWithProducts(BIRTHDAY_WISHLIST, IPAD),
+                                                          wishListWithProducts(FATHERS_DAY_WISHLIST))),
+                new UserWithWishListProducts(SALLY, emptyList()));
+    }
+
+    @Test public void
+    query_link_table_in_partitions_of_its_ids() {
+        givenWeHaveUsers(JOHN);
+        givenWeHaveProducts(MACBOOK_PRO, IPHONE, IPAD);
+        givenWeHaveAWishListFor(JOHN, XMAS_WISHLIST, MACBOOK_PRO, IPHONE);
+        givenWeHaveAWishListFor(JOHN, BIRTHDAY_WISHLIST, IPAD);
+
+        List<Integer> productIds = lightAccess.executeQueryInPartitions(KeyRange.of(1, 4), 2, this::productIdsOfWishListProducts)
+                                              .toList();
+
+        assertThat(productIds).containsExactly(MACBOOK_PRO.id(), IPHONE.id(), IPAD.id());
+    }
+
+    private SQLQuery<List<Integer>> productIdsOfWishListProducts(KeyRange ids) {
+        return conn -> conn.prepareStatement(SELECT_PRODUCT_IDS_OF_WISHLIST_PRODUCTS_SQL)
+                            .withParam(ids.from())
+                            .withParam(ids.to())
+                            .executeQuery()
+                            .mapResults(rs -> rs.getInt(1));
+    }
+
     private WishListProduct wishListWithProducts(WishList wishList, Product... products) {
         return new WishListProduct(wishList, asList(products));
     }
@@ -128,6 +291,10 @@ public class JoinsIntegrationTest {
                                                         .normaliseOneToMany(this::toWithListWithProduct)));
     }
 
+    private Product toProduct(LAResultSet rs) {
+        return rs.getOptionalInt(5).isPresent() ? new Product(rs.getInt(5), rs.getString(6), rs.getLocalDate(7)) : null;
+    }
+
     private KeyValue<WishList, Optional<Product>> toWithListWithProduct(LAResultSet rs) {
         WishList wishList = new WishList(rs.getInt(1),
                                             rs.getInt(2),
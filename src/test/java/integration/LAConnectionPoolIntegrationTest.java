@@ -0,0 +1,165 @@
+package integration;
+
+import com.codurance.lightaccess.LightAccess;
+import com.codurance.lightaccess.executables.SQLQuery;
+import com.codurance.lightaccess.pool.LAConnectionPool;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LAConnectionPoolIntegrationTest {
+
+    private static final String DB_URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+
+    private LAConnectionPool pool = LAConnectionPool.create(DB_URL, "user", "password");
+
+    @After
+    public void after_each_test() {
+        pool.close();
+    }
+
+    @Test public void
+    reuse_connections_returned_to_the_pool() throws Exception {
+        pool.getConnection().close();
+        pool.getConnection().close();
+
+        assertThat(pool.stats().connectionsCreated()).isEqualTo(1);
+        assertThat(pool.stats().acquisitions()).isEqualTo(2);
+        assertThat(pool.idleConnections()).isEqualTo(1);
+        assertThat(pool.activeConnections()).isEqualTo(0);
+    }
+
+    @Test public void
+    time_out_when_all_connections_are_in_use() throws Exception {
+        pool.withMaxSize(1).withAcquireTimeout(Duration.ofMillis(50));
+
+        try (Connection ignored = pool.getConnection()) {
+            assertThatThrownBy(() -> pool.getConnection()).isInstanceOf(SQLTransientConnectionException.class);
+        }
+
+        assertThat(pool.stats().timeouts()).isEqualTo(1);
+    }
+
+    @Test public void
+    hand_over_a_returned_connection_to_a_waiting_thread() throws Exception {
+        pool.withMaxSize(1);
+        Connection connection = pool.getConnection();
+
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.getConnection();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(50);
+        connection.close();
+
+        waiting.get(1, TimeUnit.SECONDS).close();
+        assertThat(pool.stats().connectionsCreated()).isEqualTo(1);
+    }
+
+    @Test public void
+    close_connections_older_than_the_max_lifetime() throws Exception {
+        pool.withMaxLifetime(Duration.ZERO);
+
+        pool.getConnection().close();
+        pool.getConnection().close();
+
+        assertThat(pool.stats().connectionsCreated()).isEqualTo(2);
+        assertThat(pool.totalConnections()).isEqualTo(0);
+    }
+
+    @Test public void
+    close_connections_idle_for_longer_than_the_idle_timeout() throws Exception {
+        pool.withIdleTimeout(Duration.ofMillis(100));
+
+        pool.getConnection().close();
+        Thread.sleep(500);
+
+        assertThat(pool.totalConnections()).isEqualTo(0);
+        assertThat(pool.stats().connectionsRetired()).isEqualTo(1);
+    }
+
+    @Test public void
+    not_hand_out_connections_once_closed() throws Exception {
+        Connection connection = pool.getConnection();
+
+        pool.close();
+        connection.close();
+
+        assertThat(pool.totalConnections()).isEqualTo(0);
+        assertThatThrownBy(() -> pool.getConnection()).isInstanceOf(SQLException.class);
+    }
+
+    @Test public void
+    restore_the_settings_of_a_returned_connection() throws Exception {
+        pool.withMaxSize(1);
+        int defaultIsolation;
+        try (Connection connection = pool.getConnection()) {
+            defaultIsolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            connection.setReadOnly(true);
+        }
+
+        try (Connection connection = pool.getConnection()) {
+            assertThat(connection.getAutoCommit()).isTrue();
+            assertThat(connection.getTransactionIsolation()).isEqualTo(defaultIsolation);
+            assertThat(connection.isReadOnly()).isFalse();
+        }
+        assertThat(pool.stats().connectionsCreated()).isEqualTo(1);
+    }
+
+    @Test public void
+    provide_connections_to_light_access() {
+        LightAccess lightAccess = new LightAccess(pool);
+
+        int one = lightAccess.executeQuery(conn -> conn.prepareStatement("select 1")
+                                                        .executeQuery()
+                                                        .nextRecord()
+                                                        .getInt(1));
+
+        assertThat(one).isEqualTo(1);
+        assertThat(pool.activeConnections()).isEqualTo(0);
+    }
+
+    @Test public void
+    reuse_prepared_statements_across_queries_when_statement_cache_is_enabled() {
+        LightAccess lightAccess = new LightAccess(pool.withStatementCache(10));
+
+        lightAccess.executeQuery(selectOne());
+        int one = lightAccess.executeQuery(selectOne());
+
+        assertThat(one).isEqualTo(1);
+        assertThat(pool.statementCacheStats().misses()).isEqualTo(1);
+        assertThat(pool.statementCacheStats().hits()).isEqualTo(1);
+    }
+
+    @Test public void
+    prepare_statements_again_once_their_connection_is_retired() {
+        LightAccess lightAccess = new LightAccess(pool.withStatementCache(10).withMaxLifetime(Duration.ZERO));
+
+        lightAccess.executeQuery(selectOne());
+        lightAccess.executeQuery(selectOne());
+
+        assertThat(pool.statementCacheStats().misses()).isEqualTo(2);
+        assertThat(pool.statementCacheStats().hits()).isEqualTo(0);
+    }
+
+    private SQLQuery<Integer> selectOne() {
+        return conn -> conn.prepareStatement("select 1")
+                           .executeQuery()
+                           .nextRecord()
+                           .getInt(1);
+    }
+}
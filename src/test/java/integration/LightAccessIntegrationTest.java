@@ -1,10 +1,16 @@
 package integration;
 
 import com.codurance.lightaccess.LightAccess;
+import com.codurance.lightaccess.bulk.BatchBulkLoader;
+import com.codurance.lightaccess.cache.QueryCache;
+import com.codurance.lightaccess.cache.QueryKey;
+import com.codurance.lightaccess.connection.PreparedStatementBuilder;
 import com.codurance.lightaccess.executables.DDLCommand;
 import com.codurance.lightaccess.executables.SQLCommand;
 import com.codurance.lightaccess.executables.SQLQuery;
 import com.codurance.lightaccess.mapping.LAResultSet;
+import com.codurance.lightaccess.metrics.StatementMetrics;
+import com.codurance.lightaccess.pool.LAConnectionPool;
 import integration.dtos.Product;
 import integration.dtos.ProductID;
 import org.h2.jdbcx.JdbcConnectionPool;
@@ -14,15 +20,28 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import static com.codurance.lightaccess.connection.TransactionIsolation.SERIALIZABLE;
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class LightAccessIntegrationTest {
 
+    private static final String DB_URL = "jdbc:h2:mem:test;DB_CLOSE_DELAY=-1";
     private static final String CREATE_PRODUCTS_TABLE = "CREATE TABLE products (id VARCHAR(255) PRIMARY KEY, name VARCHAR(255), date TIMESTAMP)";
     private static final String CREATE_SEQUENCE_DDL = "CREATE SEQUENCE %s START WITH %s";
     private static final String DROP_ALL_OBJECTS = "DROP ALL OBJECTS";
@@ -33,7 +52,11 @@ public class LightAccessIntegrationTest {
     private static final String UPDATE_PRODUCT_NAME_SQL = "update products set name = ? where id = ?";
     private static final String SELECT_ALL_PRODUCTS_SQL = "select * from products";
     private static final String SELECT_PRODUCT_BY_ID_SQL = "select * from products where id = ?";
+    private static final String SELECT_PRODUCTS_OTHER_THAN_SQL = "select * from products where id <> ?";
+    private static final String SELECT_PRODUCT_DATE_BY_ID_SQL = "select date from products where id = ?";
+    private static final String FIRST_PAGE_OF_ALL_PRODUCTS_SQL = "select * from (select * from products) keyset_page order by id";
 
+    private static final List<String> PRODUCT_COLUMNS = asList("id", "name", "date");
     private static final LocalDate TODAY = LocalDate.of(2017, 07, 27);
     private static final LocalDate YESTERDAY = LocalDate.of(2017, 07, 26);
 
@@ -45,7 +68,7 @@ public class LightAccessIntegrationTest {
 
     @BeforeClass
     public static void before_all_tests() throws SQLException {
-        jdbcConnectionPool = JdbcConnectionPool.create("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1", "user", "password");
+        jdbcConnectionPool = JdbcConnectionPool.create(DB_URL, "user", "password");
         lightAccess = new LightAccess(jdbcConnectionPool);
     }
 
@@ -130,6 +153,278 @@ public class LightAccessIntegrationTest {
         assertThat(product.get()).isEqualTo(new Product(PRODUCT_ONE.id(), "Another name", PRODUCT_ONE.date()));
     }
 
+    @Test public void
+    stream_records_and_close_connection_when_stream_is_closed() {
+        lightAccess.executeCommand(insert(PRODUCT_ONE));
+        lightAccess.executeCommand(insert(PRODUCT_TWO));
+
+        try (Stream<Product> products = lightAccess.executeStreamQuery(streamAllProducts())) {
+            assertThat(products).containsExactlyInAnyOrder(PRODUCT_ONE, PRODUCT_TWO);
+        }
+
+        assertThat(jdbcConnectionPool.getActiveConnections()).isEqualTo(0);
+    }
+
+    @Test public void
+    insert_records_in_batches() {
+        List<Product> products = productsWithIds(1, 5);
+
+        int[] updateCounts = lightAccess.executeQuery(insertInBatchesOf(2, products));
+
+        assertThat(updateCounts).containsExactly(1, 1, 1, 1, 1);
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).containsExactlyInAnyOrder(products.toArray(new Product[0]));
+    }
+
+    @Test public void
+    read_records_one_page_at_a_time() {
+        List<Product> products = productsWithIds(1, 7);
+        products.forEach(product -> lightAccess.executeCommand(insert(product)));
+
+        List<List<Product>> pages = lightAccess.paginate(SELECT_ALL_PRODUCTS_SQL, "id", this::productKey, this::toProduct, 3)
+                                               .pages()
+                                               .collect(toList());
+
+        assertThat(pages).containsExactly(products.subList(0, 3), products.subList(3, 6), products.subList(6, 7));
+    }
+
+    @Test public void
+    prefetch_the_next_page_while_reading_the_current_one() {
+        List<Product> products = productsWithIds(1, 7);
+        products.forEach(product -> lightAccess.executeCommand(insert(product)));
+
+        List<Product> records = lightAccess.paginate(SELECT_ALL_PRODUCTS_SQL, "id", this::productKey, this::toProduct, 3)
+                                           .withPrefetch()
+                                           .records()
+                                           .collect(toList());
+
+        assertThat(records).containsExactly(products.toArray(new Product[0]));
+    }
+
+    @Test public void
+    read_the_pages_of_a_query_with_parameters() {
+        List<Product> products = productsWithIds(1, 8);
+        products.forEach(product -> lightAccess.executeCommand(insert(product)));
+
+        List<List<Product>> pages = lightAccess.paginate(SELECT_PRODUCTS_OTHER_THAN_SQL, "id", this::productKey, this::toProduct, 3)
+                                               .withParams(statement -> statement.withParam("2"))
+                                               .pages()
+                                               .collect(toList());
+
+        assertThat(pages).containsExactly(asList(products.get(0), products.get(2), products.get(3)),
+                                          products.subList(4, 7),
+                                          products.subList(7, 8));
+    }
+
+    @Test public void
+    prefetch_the_pages_of_a_query_with_parameters() {
+        List<Product> products = productsWithIds(1, 8);
+        products.forEach(product -> lightAccess.executeCommand(insert(product)));
+
+        List<List<Product>> pages = lightAccess.paginate(SELECT_PRODUCTS_OTHER_THAN_SQL, "id", this::productKey, this::toProduct, 3)
+                                               .withParams(statement -> statement.withParam("2"))
+                                               .withPrefetch()
+                                               .pages()
+                                               .collect(toList());
+
+        assertThat(pages).containsExactly(asList(products.get(0), products.get(2), products.get(3)),
+                                          products.subList(4, 7),
+                                          products.subList(7, 8));
+    }
+
+    @Test public void
+    read_all_records_with_a_cached_statement_previously_used_for_a_page() {
+        List<Product> products = productsWithIds(1, 7);
+        products.forEach(product -> lightAccess.executeCommand(insert(product)));
+
+        try (LAConnectionPool pool = LAConnectionPool.create(DB_URL, "user", "password").withStatementCache(10)) {
+            LightAccess cachingLightAccess = new LightAccess(pool);
+            List<Product> firstPage = cachingLightAccess.paginate(SELECT_ALL_PRODUCTS_SQL, "id", this::productKey, this::toProduct, 3)
+                                                        .iterator()
+                                                        .next();
+            List<Product> allRecords = cachingLightAccess.executeQuery(conn -> conn.prepareStatement(FIRST_PAGE_OF_ALL_PRODUCTS_SQL)
+                                                                                   .executeQuery()
+                                                                                   .mapResults(this::toProduct));
+
+            assertThat(firstPage).hasSize(3);
+            assertThat(allRecords).containsExactly(products.toArray(new Product[0]));
+            assertThat(pool.statementCacheStats().hits()).isEqualTo(1);
+        }
+    }
+
+    @Test public void
+    load_records_from_a_csv_file() {
+        List<Product> products = productsWithIds(1, 5);
+
+        long loaded = lightAccess.bulkLoad("products", PRODUCT_COLUMNS, products.stream(), this::productValues);
+
+        assertThat(loaded).isEqualTo(5);
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).containsExactlyInAnyOrder(products.toArray(new Product[0]));
+    }
+
+    @Test public void
+    load_records_in_batches() {
+        LightAccess batchLoadingLightAccess = new LightAccess(jdbcConnectionPool).withBulkLoader(new BatchBulkLoader(2));
+        List<Product> products = productsWithIds(1, 5);
+
+        long loaded = batchLoadingLightAccess.bulkLoad("products", PRODUCT_COLUMNS, products.iterator(), this::productValues);
+
+        assertThat(loaded).isEqualTo(5);
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).containsExactlyInAnyOrder(products.toArray(new Product[0]));
+    }
+
+    @Test public void
+    insert_records_with_multi_row_inserts() {
+        List<Product> products = productsWithIds(1, 11);
+
+        int inserted = lightAccess.executeQuery(bulkInsertWithMaxParameters(12, products));
+
+        assertThat(inserted).isEqualTo(11);
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).containsExactlyInAnyOrder(products.toArray(new Product[0]));
+    }
+
+    @Test public void
+    reuse_prepared_statements_within_a_connection_when_statement_cache_is_enabled() {
+        LightAccess cachingLightAccess = new LightAccess(jdbcConnectionPool).withStatementCache(10);
+
+        cachingLightAccess.executeCommand(conn -> {
+            insert(PRODUCT_ONE).execute(conn);
+            insert(PRODUCT_TWO).execute(conn);
+        });
+
+        assertThat(cachingLightAccess.statementCacheStats().misses()).isEqualTo(1);
+        assertThat(cachingLightAccess.statementCacheStats().hits()).isEqualTo(1);
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).containsExactlyInAnyOrder(PRODUCT_ONE, PRODUCT_TWO);
+    }
+
+    @Test public void
+    report_connections_statements_and_rows_mapped_to_the_listener() {
+        StatementMetrics metrics = new StatementMetrics();
+        LightAccess instrumentedLightAccess = new LightAccess(jdbcConnectionPool).withListener(metrics);
+
+        instrumentedLightAccess.executeCommand(insert(PRODUCT_ONE));
+        instrumentedLightAccess.executeCommand(insert(PRODUCT_TWO));
+        instrumentedLightAccess.executeQuery(retrieveAllProducts());
+
+        StatementMetrics.Statement insert = metrics.statements().get(INSERT_PRODUCT_SQL);
+        StatementMetrics.Statement select = metrics.statements().get(SELECT_ALL_PRODUCTS_SQL);
+        assertThat(metrics.connectionAcquisition().count()).isEqualTo(3);
+        assertThat(insert.prepare().count()).isEqualTo(2);
+        assertThat(insert.execution().count()).isEqualTo(2);
+        assertThat(select.execution().count()).isEqualTo(1);
+        assertThat(select.rowsMapped()).isEqualTo(2);
+    }
+
+    @Test public void
+    map_records_reading_columns_by_label() {
+        lightAccess.executeCommand(insert(PRODUCT_ONE));
+
+        List<Product> products = lightAccess.executeQuery(conn -> conn.prepareStatement(SELECT_ALL_PRODUCTS_SQL)
+                .executeQuery()
+                .mapResults(rs -> new Product(rs.getInt("id"), rs.getString("name"), rs.getLocalDate("date"))));
+
+        assertThat(products).containsExactly(PRODUCT_ONE);
+    }
+
+    @Test public void
+    bind_and_read_timestamps_as_java_time_types() {
+        LocalDateTime createdAt = LocalDateTime.of(2017, 7, 27, 10, 15, 30);
+        Instant updatedAt = Instant.parse("2017-07-28T08:00:00Z");
+
+        lightAccess.executeCommand(conn -> {
+            conn.prepareStatement(INSERT_PRODUCT_SQL).withParam(1).withParam("Created").withParam(createdAt).executeUpdate();
+            conn.prepareStatement(INSERT_PRODUCT_SQL).withParam(2).withParam("Updated").withParam(updatedAt).executeUpdate();
+        });
+
+        assertThat(lightAccess.executeQuery(retrieveDateOfProduct(1, rs -> rs.getLocalDateTime(1)))).contains(createdAt);
+        assertThat(lightAccess.executeQuery(retrieveDateOfProduct(2, rs -> rs.getInstant(1)))).contains(updatedAt);
+    }
+
+    @Test public void
+    serve_repeated_queries_from_the_query_cache_until_their_tables_change() {
+        QueryCache queryCache = new QueryCache(100, Duration.ofMinutes(1));
+        LightAccess cachingLightAccess = new LightAccess(jdbcConnectionPool).withQueryCache(queryCache);
+        QueryKey allProducts = QueryKey.of(SELECT_ALL_PRODUCTS_SQL).dependsOn("products");
+        cachingLightAccess.executeCommand(insert(PRODUCT_ONE));
+
+        cachingLightAccess.executeQuery(allProducts, retrieveAllProducts());
+        List<Product> cachedProducts = cachingLightAccess.executeQuery(allProducts, retrieveAllProducts());
+        cachingLightAccess.executeCommand(insert(PRODUCT_TWO));
+        List<Product> reloadedProducts = cachingLightAccess.executeQuery(allProducts, retrieveAllProducts());
+
+        assertThat(cachedProducts).containsExactly(PRODUCT_ONE);
+        assertThat(reloadedProducts).containsExactlyInAnyOrder(PRODUCT_ONE, PRODUCT_TWO);
+        assertThat(queryCache.stats().hits()).isEqualTo(1);
+        assertThat(queryCache.stats().invalidations()).isEqualTo(1);
+    }
+
+    @Test public void
+    invalidate_the_whole_query_cache_when_calling_a_procedure() {
+        QueryCache queryCache = new QueryCache(100, Duration.ofMinutes(1));
+        LightAccess cachingLightAccess = new LightAccess(jdbcConnectionPool).withQueryCache(queryCache);
+        QueryKey allProducts = QueryKey.of(SELECT_ALL_PRODUCTS_SQL).dependsOn("products");
+        cachingLightAccess.executeQuery(allProducts, retrieveAllProducts());
+        lightAccess.executeCommand(insert(PRODUCT_ONE));
+
+        cachingLightAccess.executeQuery(conn -> conn.callableStatement("call 1").executeQuery().nextRecord().getInt(1));
+        List<Product> reloadedProducts = cachingLightAccess.executeQuery(allProducts, retrieveAllProducts());
+
+        assertThat(reloadedProducts).containsExactly(PRODUCT_ONE);
+        assertThat(queryCache.stats().invalidations()).isEqualTo(1);
+    }
+
+    @Test public void
+    commit_all_commands_executed_in_a_transaction() {
+        lightAccess.executeInTransaction(insert(PRODUCT_ONE), insert(PRODUCT_TWO));
+
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).containsExactlyInAnyOrder(PRODUCT_ONE, PRODUCT_TWO);
+        assertThat(jdbcConnectionPool.getActiveConnections()).isEqualTo(0);
+    }
+
+    @Test public void
+    roll_back_all_commands_executed_in_a_transaction_when_one_fails() {
+        assertThatThrownBy(() -> lightAccess.executeInTransaction(insert(PRODUCT_ONE), insert(PRODUCT_ONE)))
+                .isInstanceOf(RuntimeException.class);
+
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).isEmpty();
+        assertThat(jdbcConnectionPool.getActiveConnections()).isEqualTo(0);
+    }
+
+    @Test public void
+    roll_back_a_transaction_when_its_block_throws_an_error() {
+        assertThatThrownBy(() -> lightAccess.inTransaction(conn -> {
+            insert(PRODUCT_ONE).execute(conn);
+            throw new AssertionError("Failed block");
+        })).isInstanceOf(AssertionError.class);
+
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).isEmpty();
+        assertThat(jdbcConnectionPool.getActiveConnections()).isEqualTo(0);
+    }
+
+    @Test public void
+    return_the_result_of_a_block_executed_in_a_transaction() {
+        List<Product> products = lightAccess.inTransaction(SERIALIZABLE, conn -> {
+            insert(PRODUCT_ONE).execute(conn);
+            updateProductName(PRODUCT_ONE.id(), "Another name").execute(conn);
+            return retrieveAllProducts().execute(conn);
+        });
+
+        assertThat(products).containsExactly(new Product(PRODUCT_ONE.id(), "Another name", PRODUCT_ONE.date()));
+    }
+
+    @Test public void
+    execute_queries_and_commands_asynchronously() throws Exception {
+        CompletableFuture<Void> insertProductOne = lightAccess.executeCommandAsync(insert(PRODUCT_ONE));
+        CompletableFuture<Void> insertProductTwo = lightAccess.executeCommandAsync(insert(PRODUCT_TWO));
+        CompletableFuture.allOf(insertProductOne, insertProductTwo).get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Optional<Product>> productOne = lightAccess.executeQueryAsync(retrieveProductWithId(PRODUCT_ONE.id()));
+        CompletableFuture<Optional<Product>> productTwo = lightAccess.executeQueryAsync(retrieveProductWithId(PRODUCT_TWO.id()));
+
+        assertThat(productOne.get(5, TimeUnit.SECONDS)).contains(PRODUCT_ONE);
+        assertThat(productTwo.get(5, TimeUnit.SECONDS)).contains(PRODUCT_TWO);
+        assertThat(jdbcConnectionPool.getActiveConnections()).isEqualTo(0);
+    }
+
     @Test public void
     return_next_integer_id_using_sequence() throws Exception {
         lightAccess.executeDDLCommand(createSequence("id_sequence", "10"));
@@ -152,6 +447,29 @@ public class LightAccessIntegrationTest {
         assertThat(secondId).isEqualTo(new ProductID(11));
     }
 
+    @Test public void
+    return_ids_from_blocks_reserved_with_the_sequence() throws Exception {
+        lightAccess.executeDDLCommand(createSequence("block_sequence", "100 INCREMENT BY 100"));
+        LightAccess blockLightAccess = new LightAccess(jdbcConnectionPool).withIdBlocks("block_sequence", 100);
+
+        int firstId = blockLightAccess.nextId("block_sequence");
+        int idOfAnotherWriter = lightAccess.nextId("block_sequence");
+        int secondId = blockLightAccess.nextId("block_sequence");
+
+        assertThat(firstId).isEqualTo(1);
+        assertThat(idOfAnotherWriter).isEqualTo(200);
+        assertThat(secondId).isEqualTo(2);
+    }
+
+    @Test public void
+    reject_id_blocks_of_a_sequence_not_incremented_by_the_block_size() throws Exception {
+        lightAccess.executeDDLCommand(createSequence("block_sequence", "1"));
+
+        assertThatThrownBy(() -> new LightAccess(jdbcConnectionPool).withIdBlocks("block_sequence", 100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("incremented by the block size");
+    }
+
     private SQLCommand updateProductName(int id, String name) {
         return conn -> conn.prepareStatement(UPDATE_PRODUCT_NAME_SQL)
                             .withParam(name)
@@ -173,6 +491,39 @@ public class LightAccessIntegrationTest {
                             .executeUpdate();
     }
 
+    private int productKey(Product product) {
+        return product.id();
+    }
+
+    private Object[] productValues(Product product) {
+        return new Object[]{product.id(), product.name(), product.date()};
+    }
+
+    private SQLQuery<Integer> bulkInsertWithMaxParameters(int maxParameters, List<Product> products) {
+        return conn -> conn.bulkInsert(INSERT_PRODUCT_SQL)
+                            .withMaxParameters(maxParameters)
+                            .execute(products, (insert, product) -> insert.withParam(product.id())
+                                                                          .withParam(product.name())
+                                                                          .withParam(product.date()));
+    }
+
+    private SQLQuery<int[]> insertInBatchesOf(int batchSize, List<Product> products) {
+        return conn -> {
+            PreparedStatementBuilder insert = conn.prepareStatement(INSERT_PRODUCT_SQL).withBatchSize(batchSize);
+            products.forEach(product -> insert.withParam(product.id())
+                                                .withParam(product.name())
+                                                .withParam(product.date())
+                                                .addBatch());
+            return insert.executeBatch();
+        };
+    }
+
+    private List<Product> productsWithIds(int firstId, int lastId) {
+        return IntStream.rangeClosed(firstId, lastId)
+                        .mapToObj(id -> new Product(id, "Product " + id, TODAY))
+                        .collect(toList());
+    }
+
     private SQLQuery<Optional<Product>> retrieveProductWithId(int id) {
         return conn -> conn.prepareStatement(SELECT_PRODUCT_BY_ID_SQL)
                             .withParam(id)
@@ -180,12 +531,26 @@ public class LightAccessIntegrationTest {
                             .onlyResult(this::toProduct);
     }
 
+    private <T> SQLQuery<Optional<T>> retrieveDateOfProduct(int id, Function<LAResultSet, T> readDate) {
+        return conn -> conn.prepareStatement(SELECT_PRODUCT_DATE_BY_ID_SQL)
+                            .withParam(id)
+                            .executeQuery()
+                            .onlyResult(readDate);
+    }
+
     private SQLQuery<List<Product>> retrieveAllProducts() {
         return conn -> conn.prepareStatement(SELECT_ALL_PRODUCTS_SQL)
                             .executeQuery()
                             .mapResults(this::toProduct);
     }
 
+    private SQLQuery<Stream<Product>> streamAllProducts() {
+        return conn -> conn.prepareStatement(SELECT_ALL_PRODUCTS_SQL)
+                            .withFetchSize(100)
+                            .executeQuery()
+                            .stream(this::toProduct);
+    }
+
     private SQLCommand deleteProducts() {
         return conn -> conn.prepareStatement(DELETE_PRODUCTS_SQL).executeUpdate();
     }
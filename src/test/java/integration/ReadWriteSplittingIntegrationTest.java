@@ -0,0 +1,124 @@
+package integration;
+
+import com.codurance.lightaccess.LightAccess;
+import com.codurance.lightaccess.executables.DDLCommand;
+import com.codurance.lightaccess.executables.SQLCommand;
+import com.codurance.lightaccess.executables.SQLQuery;
+import com.codurance.lightaccess.mapping.LAResultSet;
+import integration.dtos.Product;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadWriteSplittingIntegrationTest {
+
+    private static final String CREATE_PRODUCTS_TABLE = "CREATE TABLE products (id integer PRIMARY KEY, name VARCHAR(255), date TIMESTAMP)";
+    private static final String DROP_ALL_OBJECTS = "DROP ALL OBJECTS";
+    private static final String INSERT_PRODUCT_SQL = "insert into products (id, name, date) values (?, ?, ?)";
+    private static final String SELECT_ALL_PRODUCTS_SQL = "select * from products";
+
+    private static final LocalDate TODAY = LocalDate.of(2017, 07, 27);
+    private static final Product PRIMARY_PRODUCT = new Product(1, "Written to the primary", TODAY);
+    private static final Product REPLICATED_PRODUCT = new Product(2, "Replicated", TODAY);
+
+    private static JdbcConnectionPool primaryPool;
+    private static JdbcConnectionPool replicaPool;
+    private static LightAccess primary;
+    private static LightAccess replica;
+    private static LightAccess lightAccess;
+
+    @BeforeClass
+    public static void before_all_tests() throws SQLException {
+        primaryPool = JdbcConnectionPool.create("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1", "user", "password");
+        replicaPool = JdbcConnectionPool.create("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1", "user", "password");
+        primary = new LightAccess(primaryPool);
+        replica = new LightAccess(replicaPool);
+        lightAccess = new LightAccess(primaryPool, singletonList(replicaPool));
+    }
+
+    @Before
+    public void before_each_test() throws Exception {
+        primary.executeDDLCommand(createProductsTable());
+        replica.executeDDLCommand(createProductsTable());
+        replica.executeCommand(insert(REPLICATED_PRODUCT));
+    }
+
+    @After
+    public void after_each_test() throws Exception {
+        primary.executeDDLCommand(dropAllObjects());
+        replica.executeDDLCommand(dropAllObjects());
+    }
+
+    @Test public void
+    execute_queries_with_the_replica() {
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).containsExactly(REPLICATED_PRODUCT);
+    }
+
+    @Test public void
+    execute_commands_with_the_primary() {
+        lightAccess.executeCommand(insert(PRIMARY_PRODUCT));
+
+        assertThat(primary.executeQuery(retrieveAllProducts())).containsExactly(PRIMARY_PRODUCT);
+        assertThat(replica.executeQuery(retrieveAllProducts())).containsExactly(REPLICATED_PRODUCT);
+    }
+
+    @Test public void
+    execute_queries_with_the_primary_after_a_command_in_a_read_your_writes_scope() {
+        List<Product> products = lightAccess.readingYourWrites(() -> {
+            lightAccess.executeCommand(insert(PRIMARY_PRODUCT));
+            return lightAccess.executeQuery(retrieveAllProducts());
+        });
+
+        assertThat(products).containsExactly(PRIMARY_PRODUCT);
+        assertThat(lightAccess.executeQuery(retrieveAllProducts())).containsExactly(REPLICATED_PRODUCT);
+    }
+
+    @Test public void
+    execute_queries_with_the_primary_after_an_asynchronous_command_when_reading_your_writes() throws Exception {
+        LightAccess readingYourWrites = new LightAccess(primaryPool, singletonList(replicaPool))
+                .withReadYourWrites(Duration.ofMinutes(1));
+
+        readingYourWrites.executeCommandAsync(insert(PRIMARY_PRODUCT)).get(5, TimeUnit.SECONDS);
+
+        assertThat(readingYourWrites.executeQuery(retrieveAllProducts())).containsExactly(PRIMARY_PRODUCT);
+    }
+
+    private SQLCommand insert(Product product) {
+        return conn -> conn.prepareStatement(INSERT_PRODUCT_SQL)
+                            .withParam(product.id())
+                            .withParam(product.name())
+                            .withParam(product.date())
+                            .executeUpdate();
+    }
+
+    private SQLQuery<List<Product>> retrieveAllProducts() {
+        return conn -> conn.prepareStatement(SELECT_ALL_PRODUCTS_SQL)
+                            .executeQuery()
+                            .mapResults(this::toProduct);
+    }
+
+    private Product toProduct(LAResultSet laResultSet) {
+        return new Product(laResultSet.getInt(1),
+                          laResultSet.getString(2),
+                          laResultSet.getLocalDate(3));
+    }
+
+    private DDLCommand createProductsTable() {
+        return (conn) -> conn.statement(CREATE_PRODUCTS_TABLE).execute();
+    }
+
+    private DDLCommand dropAllObjects() {
+        return (conn) -> conn.statement(DROP_ALL_OBJECTS).execute();
+    }
+}
@@ -0,0 +1,44 @@
+package integration.dtos;
+
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+import static org.apache.commons.lang3.builder.EqualsBuilder.reflectionEquals;
+import static org.apache.commons.lang3.builder.HashCodeBuilder.reflectionHashCode;
+
+public class UserWithWishListProducts {
+
+    private final User user;
+    private final List<WishListProduct> wishLists;
+
+    public UserWithWishListProducts(User user, List<WishListProduct> wishLists) {
+        this.user = user;
+        this.wishLists = unmodifiableList(wishLists);
+    }
+
+    public User user() {
+        return user;
+    }
+
+    public List<WishListProduct> wishLists() {
+        return unmodifiableList(wishLists);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return reflectionEquals(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        return reflectionHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return "UserWithWishListProducts{" +
+                "user=" + user +
+                ", wishLists=" + wishLists +
+                '}';
+    }
+}